@@ -6,16 +6,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import rinsanom.com.springtwodatasoure.dto.CreateTableRequestDTO;
 import rinsanom.com.springtwodatasoure.dto.CreateTableWithRelationshipsDTO;
 import rinsanom.com.springtwodatasoure.dto.InsertDataRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.TransactionRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.TtlRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.WebhookRequestDTO;
 import rinsanom.com.springtwodatasoure.entity.TableSchema;
 import rinsanom.com.springtwodatasoure.security.TokenUserService;
 import rinsanom.com.springtwodatasoure.service.DynamicEndpointService;
+import rinsanom.com.springtwodatasoure.service.TableService;
 import rinsanom.com.springtwodatasoure.service.impl.TableServiceImpl;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -43,7 +51,8 @@ public class CreateTableController {
             // Extract user UUID from JWT token using centralized service
             String userUuid = tokenUserService.getCurrentUserUuid();
 
-            tableService.createTablesWithUserValidation(userUuid, request.getProjectUuid(), request.getSchemaName(), request.getSchema());
+            tableService.createTablesWithUserValidation(userUuid, request.getProjectUuid(), request.getSchemaName(),
+                    request.getSchema(), request.getTimeSeries());
             return ResponseEntity.ok(Map.of(
                 "message", "Table created successfully",
                 "schemaName", request.getSchemaName(),
@@ -135,6 +144,13 @@ public class CreateTableController {
                 "projectUuid", projectUuid,
                 "userUuid", userUuid
             ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to insert data: " + e.getReason(),
+                "schemaName", schemaName,
+                "projectUuid", projectUuid,
+                "userUuid", userUuid
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to insert data: " + e.getMessage(),
@@ -165,6 +181,12 @@ public class CreateTableController {
                 "projectUuid", projectUuid,
                 "userUuid", userUuid
             ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to insert data: " + e.getReason(),
+                "schemaName", schemaName,
+                "projectUuid", projectUuid
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to insert data: " + e.getMessage(),
@@ -186,13 +208,258 @@ public class CreateTableController {
         return tableService.getTableByNameAndProject(schemaName, projectUuid);
     }
 
+    @Operation(summary = "Drop table", description = "Deletes a table together with its records, endpoint documentation and indexes")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Table dropped successfully"),
+        @ApiResponse(responseCode = "400", description = "Table not found or still referenced by another table")
+    })
+    @DeleteMapping("/{schemaName}/project/{projectUuid}")
+    public ResponseEntity<Map<String, Object>> deleteTable(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            tableService.deleteTableWithUserValidation(userUuid, schemaName, projectUuid);
+            return ResponseEntity.ok(Map.of(
+                "message", "Table dropped successfully",
+                "schemaName", schemaName,
+                "projectUuid", projectUuid
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to drop table",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(
+        summary = "Set natural key",
+        description = "Declares the columns that identify a record for upserts and backs them with a unique index. " +
+                      "An empty list removes the natural key."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Natural key set"),
+        @ApiResponse(responseCode = "400", description = "Unknown column or existing records contain duplicate keys")
+    })
+    @PutMapping("/{schemaName}/project/{projectUuid}/natural-key")
+    public ResponseEntity<Map<String, Object>> setNaturalKey(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Key columns, e.g. [\"externalId\"]") @RequestBody List<String> columns) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            TableSchema tableSchema = tableService.setNaturalKeyWithUserValidation(userUuid, schemaName, projectUuid, columns);
+            return ResponseEntity.ok(Map.of(
+                "message", "Natural key updated",
+                "schemaName", schemaName,
+                "projectUuid", projectUuid,
+                "naturalKey", tableSchema.getNaturalKey() != null ? tableSchema.getNaturalKey() : List.of()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to set natural key",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(
+        summary = "Set time-to-live",
+        description = "Makes records expire server-side: expireAfterSeconds after creation, or at the date held in the " +
+                      "expiresAtField column. Both empty removes the TTL. Time-series tables only support expireAfterSeconds."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "TTL set"),
+        @ApiResponse(responseCode = "400", description = "Invalid duration or column")
+    })
+    @PutMapping("/{schemaName}/project/{projectUuid}/ttl")
+    public ResponseEntity<Map<String, Object>> setTtl(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Lifetime in seconds or expiry column") @RequestBody TtlRequestDTO request) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            TableSchema tableSchema = tableService.setTtlWithUserValidation(userUuid, schemaName, projectUuid,
+                    request.getExpireAfterSeconds(), request.getExpiresAtField());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("message", tableSchema.getTtl() != null ? "TTL updated" : "TTL removed");
+            response.put("schemaName", schemaName);
+            response.put("projectUuid", projectUuid);
+            response.put("ttl", tableSchema.getTtl());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to set TTL",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(
+        summary = "Add a webhook",
+        description = "POSTs batches of inserted and / or updated records to the URL, delivered in the background with retries. " +
+                      "Every delivery is signed with HMAC-SHA256 of the body in the X-Webhook-Signature header; " +
+                      "the secret is only returned here."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Webhook created"),
+        @ApiResponse(responseCode = "400", description = "Invalid URL or event")
+    })
+    @PostMapping("/{schemaName}/project/{projectUuid}/webhooks")
+    public ResponseEntity<Map<String, Object>> createWebhook(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "URL and events") @RequestBody WebhookRequestDTO request) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            Map<String, Object> webhook = tableService.createWebhookWithUserValidation(userUuid, schemaName, projectUuid, request);
+            return ResponseEntity.ok(webhook);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to create webhook",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to create webhook",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(summary = "List webhooks", description = "Webhooks of a table, without their secrets")
+    @GetMapping("/{schemaName}/project/{projectUuid}/webhooks")
+    public ResponseEntity<Map<String, Object>> getWebhooks(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            List<Map<String, Object>> webhooks = tableService.getWebhooksWithUserValidation(userUuid, schemaName, projectUuid);
+            return ResponseEntity.ok(Map.of(
+                "schemaName", schemaName,
+                "projectUuid", projectUuid,
+                "webhooks", webhooks
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to list webhooks",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(summary = "Remove a webhook", description = "Stops deliveries; events still queued for it are dropped")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Webhook removed"),
+        @ApiResponse(responseCode = "404", description = "No such webhook on the table")
+    })
+    @DeleteMapping("/{schemaName}/project/{projectUuid}/webhooks/{webhookId}")
+    public ResponseEntity<Map<String, Object>> deleteWebhook(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Webhook ID") @PathVariable String webhookId) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            tableService.deleteWebhookWithUserValidation(userUuid, schemaName, projectUuid, webhookId);
+            return ResponseEntity.ok(Map.of(
+                "message", "Webhook removed",
+                "schemaName", schemaName,
+                "projectUuid", projectUuid,
+                "webhookId", webhookId
+            ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to remove webhook",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to remove webhook",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(
+        summary = "Move table to its own collection",
+        description = "Copies the table's records from the shared collection into a dedicated one in the background. " +
+                      "Reads switch over once the copy has caught up; progress is reported in the table's storageMigration field."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Migration started"),
+        @ApiResponse(responseCode = "400", description = "Table not found, already dedicated or already migrating")
+    })
+    @PostMapping("/{schemaName}/project/{projectUuid}/storage/migrate")
+    public ResponseEntity<Map<String, Object>> migrateTableStorage(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            String targetCollection = tableService.migrateTableStorageWithUserValidation(userUuid, schemaName, projectUuid);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "message", "Storage migration started",
+                "schemaName", schemaName,
+                "projectUuid", projectUuid,
+                "targetCollection", targetCollection
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to migrate table storage",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @Operation(
+        summary = "Write to several tables atomically",
+        description = "Applies inserts, updates and deletes across tables of one project in a single MongoDB transaction. " +
+                      "Either every operation is committed or none is. Requires MongoDB running as a replica set."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Transaction committed"),
+        @ApiResponse(responseCode = "400", description = "Invalid operation or transaction rolled back"),
+        @ApiResponse(responseCode = "404", description = "A record to update or delete does not exist; nothing was written"),
+        @ApiResponse(responseCode = "409", description = "A write conflicts with a UNIQUE column; nothing was written"),
+        @ApiResponse(responseCode = "412", description = "A record version did not match; nothing was written")
+    })
+    @PostMapping("/project/{projectUuid}/transaction")
+    public ResponseEntity<Map<String, Object>> executeTransaction(
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Operations to apply in order") @RequestBody TransactionRequestDTO request) {
+        try {
+            String userUuid = tokenUserService.getCurrentUserUuid();
+
+            Map<String, Object> result = tableService.executeTransactionWithUserValidation(userUuid, projectUuid, request.getOperations());
+            return ResponseEntity.ok(result);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Transaction rolled back",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Transaction rolled back",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
     @Operation(
         summary = "Insert data into table",
         description = "Inserts new data into a specified table"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Data inserted successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid data format")
+        @ApiResponse(responseCode = "400", description = "Invalid data format"),
+        @ApiResponse(responseCode = "409", description = "A UNIQUE column already holds the same value")
     })
     @PostMapping("/data")
     public ResponseEntity<Map<String, Object>> insertData(
@@ -208,6 +475,11 @@ public class CreateTableController {
                 "projectUuid", request.getProjectUuid(),
                 "userUuid", userUuid
             ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to insert data",
+                "message", e.getReason()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to insert data",
@@ -216,31 +488,55 @@ public class CreateTableController {
         }
     }
 
-    @Operation(summary = "Get all data from table", description = "Retrieves all data from a specific table")
+    @Operation(summary = "Get all data from table", description = "Retrieves a page of data from a specific table")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
-        @ApiResponse(responseCode = "404", description = "Table not found")
+        @ApiResponse(responseCode = "400", description = "Invalid paging, sort or filter parameters")
     })
     @GetMapping("/{schemaName}/data")
-    public ResponseEntity<List<Map<String, Object>>> getTableData(@PathVariable String schemaName) {
+    public ResponseEntity<Map<String, Object>> getTableData(
+            @Parameter(description = "Schema name") @PathVariable String schemaName,
+            @Parameter(description = "Page number (starts from 0)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of records per page") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort criteria: property(,asc|desc)") @RequestParam(required = false) String sort,
+            @Parameter(description = "Comma-separated columns to return") @RequestParam(required = false) List<String> fields,
+            @Parameter(description = "Filter expression, e.g. and(gte(price,10),eq(status,'open')); repeat to combine")
+            @RequestParam(name = "filter", required = false) List<String> filters) {
         try {
-            List<Map<String, Object>> data = tableService.getAllDataFromTable(schemaName);
+            Map<String, Object> data = tableService.getDataPage(schemaName, null, page, size, sort, fields, filters);
             return ResponseEntity.ok(data);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(null);
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to get table data",
+                "message", e.getMessage()
+            ));
         }
     }
 
-    @Operation(summary = "Get table data by project", description = "Retrieves all data from a table within a specific project")
+    @Operation(summary = "Get table data by project", description = "Retrieves a page of data from a table within a specific project")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
-        @ApiResponse(responseCode = "404", description = "Table or project not found")
+        @ApiResponse(responseCode = "400", description = "Invalid paging, sort or filter parameters")
     })
     @GetMapping("/{schemaName}/data/project/{projectUuid}")
-    public List<Map<String, Object>> getTableDataByProject(
+    public ResponseEntity<Map<String, Object>> getTableDataByProject(
             @Parameter(description = "Schema name") @PathVariable String schemaName,
-            @Parameter(description = "Project UUID") @PathVariable String projectUuid) {
-        return tableService.getDataFromTableByProject(schemaName, projectUuid);
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Page number (starts from 0)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of records per page") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort criteria: property(,asc|desc)") @RequestParam(required = false) String sort,
+            @Parameter(description = "Comma-separated columns to return") @RequestParam(required = false) List<String> fields,
+            @Parameter(description = "Filter expression, e.g. and(gte(price,10),eq(status,'open')); repeat to combine")
+            @RequestParam(name = "filter", required = false) List<String> filters) {
+        try {
+            Map<String, Object> data = tableService.getDataPage(schemaName, projectUuid, page, size, sort, fields, filters);
+            return ResponseEntity.ok(data);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to get table data",
+                "message", e.getMessage()
+            ));
+        }
     }
 
     @Operation(summary = "Get record by ID", description = "Retrieves a specific record by its ID")
@@ -252,14 +548,15 @@ public class CreateTableController {
     public ResponseEntity<Map<String, Object>> getRecordById(
             @Parameter(description = "Schema name") @PathVariable String schemaName,
             @Parameter(description = "Record ID") @PathVariable String id,
-            @Parameter(description = "Project UUID") @PathVariable String projectUuid) {
+            @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Comma-separated columns to return") @RequestParam(required = false) List<String> fields) {
 
         try {
-            Map<String, Object> record = tableService.getRecordById(schemaName, id);
+            Map<String, Object> record = tableService.getRecordById(schemaName, projectUuid, id, fields);
             if (record == null) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(record);
+            return ResponseEntity.ok().eTag(RecordETags.of(record)).body(record);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to get record",
@@ -271,20 +568,30 @@ public class CreateTableController {
     @Operation(summary = "Update record by ID", description = "Updates a specific record by its ID")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Record updated successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid data or record not found")
+        @ApiResponse(responseCode = "400", description = "Invalid data"),
+        @ApiResponse(responseCode = "404", description = "Record not found"),
+        @ApiResponse(responseCode = "412", description = "If-Match version does not match the current record")
     })
     @PutMapping("/{schemaName}/{id}/project/{projectUuid}")
     public ResponseEntity<Map<String, Object>> updateRecord(
             @Parameter(description = "Schema name") @PathVariable String schemaName,
             @Parameter(description = "Record ID") @PathVariable String id,
             @Parameter(description = "Project UUID") @PathVariable String projectUuid,
+            @Parameter(description = "Expected record version (ETag)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Parameter(description = "Updated data") @RequestBody Map<String, Object> data) {
         try {
-            tableService.updateRecord(schemaName, id, data);
-            return ResponseEntity.ok(Map.of(
+            Long expectedVersion = RecordETags.parseIfMatch(ifMatch);
+            Map<String, Object> record = tableService.updateRecord(schemaName, projectUuid, id, data, expectedVersion);
+            return ResponseEntity.ok().eTag(RecordETags.of(record)).body(Map.of(
                 "message", "Record updated successfully",
                 "schemaName", schemaName,
-                "projectUuid", projectUuid
+                "projectUuid", projectUuid,
+                "version", record.get(TableService.VERSION_FIELD)
+            ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to update record",
+                "message", e.getReason()
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -305,13 +612,18 @@ public class CreateTableController {
             @PathVariable String id,
             @PathVariable String projectUuid) {
         try {
-            tableService.deleteRecord(schemaName, id);
+            tableService.deleteRecord(schemaName, projectUuid, id);
             return ResponseEntity.ok(Map.of(
                 "message", "Record deleted successfully",
                 "schemaName", schemaName,
                 "id", id,
                 "projectUuid", projectUuid
             ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to delete record",
+                "message", e.getReason()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to delete record",
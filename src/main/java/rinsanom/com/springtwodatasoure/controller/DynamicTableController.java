@@ -1,10 +1,24 @@
 package rinsanom.com.springtwodatasoure.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import rinsanom.com.springtwodatasoure.dto.AggregateRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.BatchInsertRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.DeleteManyRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.RecordIdsRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.RecordOperationsRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.UpdateManyRequestDTO;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+import rinsanom.com.springtwodatasoure.service.TableChangeStreamService;
+import rinsanom.com.springtwodatasoure.service.TableExportService;
 import rinsanom.com.springtwodatasoure.service.TableService;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,15 +28,262 @@ import java.util.Map;
 public class DynamicTableController {
 
     private final TableService tableService;
+    private final TableExportService tableExportService;
+    private final TableChangeStreamService tableChangeStreamService;
 
-    // GET /api/tables/{schemaName} - Get all records from a specific table
+    // GET /api/tables/{schemaName}?page=0&size=20&sort=field,asc&fields=a,b - Get a page of records from a specific table
+    // GET /api/tables/{schemaName}?cursor=&size=20 - Keyset paging: pass the returned "next" as cursor until it is null
+    // GET /api/tables/{schemaName}?filter=and(gte(price,10),eq(status,'open')) - Only records matching every filter
+    // GET /api/tables/{schemaName}?filter=near(location,104.92,11.55,500) - Geo filters (near/within) on POINT/GEOMETRY columns
     @GetMapping("/{schemaName}")
-    public ResponseEntity<List<Map<String, Object>>> getAllRecords(@PathVariable String schemaName) {
+    public ResponseEntity<Map<String, Object>> getAllRecords(
+            @PathVariable String schemaName,
+            @RequestParam(required = false) String projectId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "filter", required = false) List<String> filters) {
         try {
-            List<Map<String, Object>> records = tableService.getAllDataFromTable(schemaName);
+            Map<String, Object> records = cursor != null
+                    ? tableService.getDataAfter(schemaName, projectId, cursor, size, sort, fields, filters)
+                    : tableService.getDataPage(schemaName, projectId, page, size, sort, fields, filters);
             return ResponseEntity.ok(records);
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to retrieve records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/count?projectId=...&filter=eq(status,'open')&exact=false - Count records without reading them
+    // Unfiltered counts of large tables with their own collection are estimated; "exact" in the response says which
+    @GetMapping("/{schemaName}/count")
+    public ResponseEntity<Map<String, Object>> countRecords(
+            @PathVariable String schemaName,
+            @RequestParam(required = false) String projectId,
+            @RequestParam(name = "filter", required = false) List<String> filters,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        try {
+            Map<String, Object> count = tableService.countRecords(schemaName, projectId, filters, exact);
+            return ResponseEntity.ok(count);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to count records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/distinct?projectId=...&column=status&filter=...&limit=100 - Distinct values of a column
+    @GetMapping("/{schemaName}/distinct")
+    public ResponseEntity<Map<String, Object>> distinctValues(
+            @PathVariable String schemaName,
+            @RequestParam(required = false) String projectId,
+            @RequestParam String column,
+            @RequestParam(name = "filter", required = false) List<String> filters,
+            @RequestParam(defaultValue = "0") int limit) {
+        try {
+            Map<String, Object> values = tableService.distinctValues(schemaName, projectId, column, filters, limit);
+            return ResponseEntity.ok(values);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to read distinct values",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/facets?projectId=...&columns=status,category&filter=...&limit=10
+    // Top values of each column with how many matching records have them, for filter sidebars
+    @GetMapping("/{schemaName}/facets")
+    public ResponseEntity<Map<String, Object>> facetCounts(
+            @PathVariable String schemaName,
+            @RequestParam(required = false) String projectId,
+            @RequestParam List<String> columns,
+            @RequestParam(name = "filter", required = false) List<String> filters,
+            @RequestParam(defaultValue = "0") int limit) {
+        try {
+            Map<String, Object> facets = tableService.facetCounts(schemaName, projectId, columns, filters, limit);
+            return ResponseEntity.ok(facets);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to count facets",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/aggregate - Group records by columns / time buckets and compute count, sum, avg, min, max
+    // e.g. {"projectId": "...", "groupBy": [{"column": "orderDate", "interval": "1M"}],
+    //       "metrics": [{"op": "sum", "column": "total", "as": "revenue"}], "having": [{"field": "revenue", "op": "gt", "value": 0}],
+    //       "sort": ["revenue,desc"], "limit": 12}
+    @PostMapping("/{schemaName}/aggregate")
+    public ResponseEntity<Map<String, Object>> aggregateRecords(
+            @PathVariable String schemaName,
+            @RequestBody AggregateRequestDTO request) {
+        try {
+            Map<String, Object> result = tableService.aggregateRecords(schemaName, request.getProjectId(), request);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to aggregate records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/search?projectId=...&q=red shoes&page=0&size=20 - Full-text search over SEARCHABLE columns
+    @GetMapping("/{schemaName}/search")
+    public ResponseEntity<Map<String, Object>> searchRecords(
+            @PathVariable String schemaName,
+            @RequestParam String projectId,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Map<String, Object> results = tableService.searchRecords(schemaName, projectId, q, page, size);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to search records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/near?projectId=...&column=location&lng=104.92&lat=11.55&maxDistance=2000&limit=20
+    // Records nearest to a position on a POINT/GEOMETRY column, with "_distance" in meters; accepts filter like the listing
+    @GetMapping("/{schemaName}/near")
+    public ResponseEntity<Map<String, Object>> findNear(
+            @PathVariable String schemaName,
+            @RequestParam String projectId,
+            @RequestParam String column,
+            @RequestParam double lng,
+            @RequestParam double lat,
+            @RequestParam(required = false) Double maxDistance,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(name = "filter", required = false) List<String> filters) {
+        try {
+            Map<String, Object> results = tableService.findNear(schemaName, projectId, column, lng, lat, maxDistance, limit, filters);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to find nearby records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/range?projectId=...&from=2024-05-01T00:00:00Z&to=...&meta=sensor-1&order=asc&size=100
+    // Time-series tables: records in time order within [from, to), paged through the returned "next" cursor
+    @GetMapping("/{schemaName}/range")
+    public ResponseEntity<Map<String, Object>> getTimeRange(
+            @PathVariable String schemaName,
+            @RequestParam String projectId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String meta,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(name = "filter", required = false) List<String> filters) {
+        try {
+            Map<String, Object> records = tableService.getTimeSeriesRange(
+                    schemaName, projectId, from, to, meta, order, cursor, size, filters);
+            return ResponseEntity.ok(records);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to retrieve records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/buckets?projectId=...&from=...&to=...&interval=5m&columns=temperature,humidity&byMeta=true
+    // Time-series tables: count and avg/min/max/sum of numeric columns per time bucket
+    @GetMapping("/{schemaName}/buckets")
+    public ResponseEntity<Map<String, Object>> aggregateTimeBuckets(
+            @PathVariable String schemaName,
+            @RequestParam String projectId,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam String interval,
+            @RequestParam(required = false) List<String> columns,
+            @RequestParam(required = false) String meta,
+            @RequestParam(defaultValue = "false") boolean byMeta,
+            @RequestParam(name = "filter", required = false) List<String> filters) {
+        try {
+            Map<String, Object> buckets = tableService.aggregateTimeSeries(
+                    schemaName, projectId, from, to, interval, columns, meta, byMeta, filters);
+            return ResponseEntity.ok(buckets);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to aggregate records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/export?projectId=...&format=ndjson|csv - Stream every record of a table
+    @GetMapping("/{schemaName}/export")
+    public ResponseEntity<Object> exportRecords(
+            @PathVariable String schemaName,
+            @RequestParam String projectId,
+            @RequestParam(defaultValue = TableExportService.FORMAT_NDJSON) String format) {
+        if (!tableExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Unsupported export format: " + format,
+                "supportedFormats", List.of(TableExportService.FORMAT_NDJSON, TableExportService.FORMAT_CSV)
+            ));
+        }
+
+        TableSchema tableSchema = tableService.getTableByNameAndProject(schemaName, projectId);
+        if (tableSchema == null) {
+            return ResponseEntity.status(404).body(Map.of(
+                "error", "Table not found",
+                "table", schemaName,
+                "projectId", projectId
+            ));
+        }
+
+        boolean csv = TableExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> tableExportService.exportTable(tableSchema, format, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + schemaName + (csv ? ".csv" : ".ndjson") + "\"")
+                .body(body);
+    }
+
+    // GET /api/tables/{schemaName}/changes?projectId=...&op=insert,update&filter=eq(status,'open') - Server-Sent Events
+    // of the table's record changes instead of polling; reconnect with resumeToken (or Last-Event-ID) to continue a feed
+    @GetMapping(value = "/{schemaName}/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Object> streamChanges(
+            @PathVariable String schemaName,
+            @RequestParam String projectId,
+            @RequestParam(name = "op", required = false) List<String> operations,
+            @RequestParam(name = "filter", required = false) List<String> filters,
+            @RequestParam(required = false) String resumeToken,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        TableSchema tableSchema = tableService.getTableByNameAndProject(schemaName, projectId);
+        if (tableSchema == null) {
+            return ResponseEntity.status(404).contentType(MediaType.APPLICATION_JSON).body(Map.of(
+                "error", "Table not found",
+                "table", schemaName,
+                "projectId", projectId
+            ));
+        }
+        try {
+            return ResponseEntity.ok(tableChangeStreamService.subscribe(tableSchema, operations, filters,
+                    resumeToken != null ? resumeToken : lastEventId));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).contentType(MediaType.APPLICATION_JSON).body(Map.of(
+                "error", "Failed to subscribe to changes",
+                "message", e.getReason()
+            ));
         }
     }
 
@@ -47,6 +308,10 @@ public class DynamicTableController {
                 "projectId", projectId,
                 "data", data
             ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to create record: " + e.getReason()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to create record: " + e.getMessage()
@@ -54,17 +319,206 @@ public class DynamicTableController {
         }
     }
 
-    // GET /api/tables/{schemaName}/{id} - Get a specific record by ID
+    // POST /api/tables/{schemaName}/batch - Create many records in one request
+    @PostMapping("/{schemaName}/batch")
+    public ResponseEntity<Map<String, Object>> createRecords(
+            @PathVariable String schemaName,
+            @RequestBody BatchInsertRequestDTO request) {
+        try {
+            String projectId = request.getProjectId();
+            if (projectId == null || projectId.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "projectId is required in the request body"
+                ));
+            }
+
+            Map<String, Object> summary = tableService.insertDataBatch(schemaName, projectId, request.getRows());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("message", "Batch processed");
+            response.put("table", schemaName);
+            response.put("projectId", projectId);
+            response.putAll(summary);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to create records: " + e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/upsert - Insert, or update the record with the same natural key
+    @PostMapping("/{schemaName}/upsert")
+    public ResponseEntity<Map<String, Object>> upsertRecord(
+            @PathVariable String schemaName,
+            @RequestBody Map<String, Object> data) {
+        try {
+            String projectId = (String) data.get("projectId");
+            if (projectId == null || projectId.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "projectId is required in the request body"
+                ));
+            }
+
+            Map<String, Object> record = tableService.upsertRecord(schemaName, projectId, data);
+            return ResponseEntity.ok().eTag(RecordETags.of(record)).body(record);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to upsert record",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to upsert record",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/upsert/batch - Upsert many records by natural key in one request
+    @PostMapping("/{schemaName}/upsert/batch")
+    public ResponseEntity<Map<String, Object>> upsertRecords(
+            @PathVariable String schemaName,
+            @RequestBody BatchInsertRequestDTO request) {
+        try {
+            String projectId = request.getProjectId();
+            if (projectId == null || projectId.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "projectId is required in the request body"
+                ));
+            }
+
+            Map<String, Object> summary = tableService.upsertRecords(schemaName, projectId, request.getRows());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("message", "Batch processed");
+            response.put("table", schemaName);
+            response.put("projectId", projectId);
+            response.putAll(summary);
+            return ResponseEntity.ok(response);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to upsert records",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to upsert records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/_mget?fields=a,b - Fetch many records by id in one request, in request order
+    @PostMapping("/{schemaName}/_mget")
+    public ResponseEntity<Map<String, Object>> getRecordsByIds(
+            @PathVariable String schemaName,
+            @RequestParam(required = false) List<String> fields,
+            @RequestBody RecordIdsRequestDTO request) {
+        try {
+            Map<String, Object> records = tableService.getRecordsByIds(schemaName, request.getProjectId(), request.getIds(), fields);
+            return ResponseEntity.ok(records);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to retrieve records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/batch/delete - Delete many records by id in one request
+    @PostMapping("/{schemaName}/batch/delete")
+    public ResponseEntity<Map<String, Object>> deleteRecords(
+            @PathVariable String schemaName,
+            @RequestBody RecordIdsRequestDTO request) {
+        try {
+            String projectId = request.getProjectId();
+            if (projectId == null || projectId.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "projectId is required in the request body"
+                ));
+            }
+
+            Map<String, Object> summary = tableService.deleteRecords(schemaName, projectId, request.getIds());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("message", "Records deleted");
+            response.put("table", schemaName);
+            response.put("projectId", projectId);
+            response.putAll(summary);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to delete records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/update-many - Set columns on every record matching a filter, server-side
+    @PostMapping("/{schemaName}/update-many")
+    public ResponseEntity<Map<String, Object>> updateMany(
+            @PathVariable String schemaName,
+            @RequestBody UpdateManyRequestDTO request) {
+        try {
+            Map<String, Object> summary = tableService.updateMany(schemaName, request.getProjectId(), request.getFilter(),
+                    request.getSet(), request.isDryRun(), request.getLimit());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("message", request.isDryRun() ? "Dry run, no records changed" : "Records updated");
+            response.put("table", schemaName);
+            response.put("projectId", request.getProjectId());
+            response.putAll(summary);
+            return ResponseEntity.ok(response);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to update records",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to update records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // POST /api/tables/{schemaName}/delete-many - Delete every record matching a filter, server-side
+    @PostMapping("/{schemaName}/delete-many")
+    public ResponseEntity<Map<String, Object>> deleteMany(
+            @PathVariable String schemaName,
+            @RequestBody DeleteManyRequestDTO request) {
+        try {
+            Map<String, Object> summary = tableService.deleteMany(schemaName, request.getProjectId(), request.getFilter(),
+                    request.isDryRun(), request.getLimit());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("message", request.isDryRun() ? "Dry run, no records deleted" : "Records deleted");
+            response.put("table", schemaName);
+            response.put("projectId", request.getProjectId());
+            response.putAll(summary);
+            return ResponseEntity.ok(response);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to delete records",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to delete records",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // GET /api/tables/{schemaName}/{id}?fields=a,b - Get a specific record by ID
     @GetMapping("/{schemaName}/{id}")
     public ResponseEntity<Map<String, Object>> getRecordById(
             @PathVariable String schemaName,
-            @PathVariable String id) {
+            @PathVariable String id,
+            @RequestParam(required = false) String projectId,
+            @RequestParam(required = false) List<String> fields) {
         try {
-            Map<String, Object> record = tableService.getRecordById(schemaName, id);
+            Map<String, Object> record = tableService.getRecordById(schemaName, projectId, id, fields);
             if (record == null) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(record);
+            return ResponseEntity.ok().eTag(RecordETags.of(record)).body(record);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to retrieve record",
@@ -73,19 +527,28 @@ public class DynamicTableController {
         }
     }
 
-    // PUT /api/tables/{schemaName}/{id} - Update a specific record by ID
+    // PUT /api/tables/{schemaName}/{id} - Update a specific record by ID (If-Match: "<version>" for optimistic locking)
     @PutMapping("/{schemaName}/{id}")
     public ResponseEntity<Map<String, Object>> updateRecord(
             @PathVariable String schemaName,
             @PathVariable String id,
+            @RequestParam(required = false) String projectId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Map<String, Object> data) {
         try {
-            tableService.updateRecord(schemaName, id, data);
-            return ResponseEntity.ok(Map.of(
+            Long expectedVersion = RecordETags.parseIfMatch(ifMatch);
+            Map<String, Object> record = tableService.updateRecord(schemaName, projectId, id, data, expectedVersion);
+            return ResponseEntity.ok().eTag(RecordETags.of(record)).body(Map.of(
                 "message", "Record updated successfully",
                 "table", schemaName,
                 "id", id,
-                "data", data
+                "data", data,
+                "version", record.get(TableService.VERSION_FIELD)
+            ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to update record",
+                "message", e.getReason()
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -95,18 +558,49 @@ public class DynamicTableController {
         }
     }
 
-    // DELETE /api/tables/{schemaName}/{id} - Delete a specific record by ID
+    // POST /api/tables/{schemaName}/{id}/operations - Atomic {"inc": {"views": 1}, "push": {...}, "pull": {...}, "min": {...}, "max": {...}}
+    @PostMapping("/{schemaName}/{id}/operations")
+    public ResponseEntity<Map<String, Object>> applyRecordOperations(
+            @PathVariable String schemaName,
+            @PathVariable String id,
+            @RequestParam(required = false) String projectId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody RecordOperationsRequestDTO operations) {
+        try {
+            Long expectedVersion = RecordETags.parseIfMatch(ifMatch);
+            Map<String, Object> record = tableService.applyRecordOperations(schemaName, projectId, id, operations, expectedVersion);
+            return ResponseEntity.ok().eTag(RecordETags.of(record)).body(record);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to apply operations",
+                "message", e.getReason()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Failed to apply operations",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    // DELETE /api/tables/{schemaName}/{id}?projectId= - Delete a specific record by ID within a project
     @DeleteMapping("/{schemaName}/{id}")
     public ResponseEntity<Map<String, Object>> deleteRecord(
             @PathVariable String schemaName,
-            @PathVariable String id) {
+            @PathVariable String id,
+            @RequestParam String projectId) {
         try {
-            tableService.deleteRecord(schemaName, id);
+            tableService.deleteRecord(schemaName, projectId, id);
             return ResponseEntity.ok(Map.of(
                 "message", "Record deleted successfully",
                 "table", schemaName,
                 "id", id
             ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                "error", "Failed to delete record",
+                "message", e.getReason()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to delete record",
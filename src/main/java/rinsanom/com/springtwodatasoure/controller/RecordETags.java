@@ -0,0 +1,40 @@
+package rinsanom.com.springtwodatasoure.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import rinsanom.com.springtwodatasoure.service.TableService;
+
+import java.util.Map;
+
+/**
+ * Converts between a dynamic record's version and its HTTP entity tag.
+ */
+final class RecordETags {
+
+    private RecordETags() {
+    }
+
+    static String of(Map<String, Object> record) {
+        return "\"" + record.get(TableService.VERSION_FIELD) + "\"";
+    }
+
+    /**
+     * Parses an If-Match header into the expected record version.
+     * Returns null when the header is absent or "*", i.e. when any version is acceptable.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match header: " + ifMatch);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class AggregateRequestDTO {
+    private String projectId;           // Project the records belong to
+    private List<String> filters;       // Filter expressions the records must all match, as in the listing's filter
+    private List<GroupBy> groupBy;      // Group keys, in order; none aggregates every matching record into one row
+    private List<Metric> metrics;       // Values computed per group; defaults to a record count
+    private List<Having> having;        // Conditions on metrics (or group keys) a group must meet
+    private List<String> sort;          // Metric alias or group column with optional direction, e.g. "total,desc"
+    private Integer limit;              // Maximum number of groups returned
+
+    @Data
+    public static class GroupBy {
+        private String column;          // Column, or createdAt / updatedAt (timestamp on time-series tables)
+        private String interval;        // Optional time bucket for date columns: 30s, 5m, 1h, 1d, 1w, 1M or 1y
+    }
+
+    @Data
+    public static class Metric {
+        private String op;              // count, sum, avg, min or max
+        private String column;          // Column the metric reads; optional for count (counts records with a value)
+        private String as;              // Name in the result; defaults to count or <op>_<column>
+    }
+
+    @Data
+    public static class Having {
+        private String field;           // Metric alias or group column
+        private String op;              // eq, ne, gt, gte, lt or lte
+        private Object value;
+    }
+}
@@ -0,0 +1,11 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BatchInsertRequestDTO {
+    private String projectId;                 // Project the rows belong to
+    private List<Map<String, Object>> rows;   // Each entry is column name -> value, like a single insert body
+}
@@ -8,4 +8,12 @@ public class CreateTableRequestDTO {
     private String projectUuid;  // Project UUID is still required
     private String schemaName;
     private Map<String, String> schema;
+    private TimeSeries timeSeries;  // Optional: store the table as an append-only time-series collection
+
+    @Data
+    public static class TimeSeries {
+        private String timeField;       // Required DATE/DATETIME/TIMESTAMP column
+        private String metaField;       // Optional column that identifies a series (sensor, device, ...)
+        private String granularity;     // SECONDS (default), MINUTES or HOURS: typical gap between readings of a series
+    }
 }
@@ -0,0 +1,11 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+
+@Data
+public class DeleteManyRequestDTO {
+    private String projectId;   // Project the records belong to
+    private String filter;      // Filter expression selecting the records, e.g. eq(customerId,'c-42')
+    private boolean dryRun;     // Only count the matching records
+    private Integer limit;      // Optional cap on the number of records deleted (lowest ids first)
+}
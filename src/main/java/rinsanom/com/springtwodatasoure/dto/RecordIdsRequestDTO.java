@@ -0,0 +1,10 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class RecordIdsRequestDTO {
+    private String projectId;   // Project the records belong to
+    private List<String> ids;   // Record IDs (MongoDB ObjectIds)
+}
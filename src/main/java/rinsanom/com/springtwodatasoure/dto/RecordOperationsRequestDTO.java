@@ -0,0 +1,13 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.Map;
+
+@Data
+public class RecordOperationsRequestDTO {
+    private Map<String, Object> inc;    // column -> amount to add (negative to subtract); INT / DECIMAL columns
+    private Map<String, Object> push;   // column -> element to append (a list appends each element); array columns
+    private Map<String, Object> pull;   // column -> element to remove (a list removes each element); array columns
+    private Map<String, Object> min;    // column -> value; kept only if lower than the stored value
+    private Map<String, Object> max;    // column -> value; kept only if higher than the stored value
+}
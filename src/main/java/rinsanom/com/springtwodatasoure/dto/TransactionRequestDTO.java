@@ -0,0 +1,19 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class TransactionRequestDTO {
+    private List<Operation> operations;   // Applied in order; either all of them commit or none does
+
+    @Data
+    public static class Operation {
+        private String op;                    // insert, update or delete
+        private String table;                 // Table (schema name) in the project
+        private String id;                    // Record ID for update / delete; optional for insert
+        private Map<String, Object> data;     // Columns to insert, or to set on update
+        private Long expectedVersion;         // Optional version check for update / delete (like If-Match)
+    }
+}
@@ -0,0 +1,9 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+
+@Data
+public class TtlRequestDTO {
+    private Long expireAfterSeconds;    // Records expire this long after creation
+    private String expiresAtField;      // Or: date column holding each record's expiry time; both null removes the TTL
+}
@@ -0,0 +1,13 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.Map;
+
+@Data
+public class UpdateManyRequestDTO {
+    private String projectId;           // Project the records belong to
+    private String filter;              // Filter expression selecting the records, e.g. lt(createdOn,'2024-01-01')
+    private Map<String, Object> set;    // Column name -> new value, applied to every matching record
+    private boolean dryRun;             // Only count the matching records
+    private Integer limit;              // Optional cap on the number of records changed (lowest ids first)
+}
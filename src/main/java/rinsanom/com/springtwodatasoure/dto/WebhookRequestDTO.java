@@ -0,0 +1,11 @@
+package rinsanom.com.springtwodatasoure.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class WebhookRequestDTO {
+    private String url;             // http(s) endpoint that receives the events
+    private List<String> events;    // insert and / or update; empty for both
+    private String secret;          // Optional signing key; generated when missing
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Map;
 
@@ -15,10 +16,15 @@ public class TableData {
     private String schemaName;
     private String projectId;
     private Map<String, Object> data;
+    private Long version; // Incremented on every update; exposed as the record ETag
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Instant timestamp; // Time-series tables only: the time column as a BSON date
+    private Object meta;       // Time-series tables only: the value of the meta column
+    private Instant expiresAt; // TTL tables with an expiry column: that column as a BSON date
 
     public TableData() {
+        this.version = 0L;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
@@ -33,4 +39,9 @@ public class TableData {
     public void updateTimestamp() {
         this.updatedAt = LocalDateTime.now();
     }
+
+    // Records written before versioning was introduced have no version yet
+    public long currentVersion() {
+        return version != null ? version : 0L;
+    }
 }
@@ -17,6 +17,11 @@ public class TableSchema {
     private String projectId;
     private Map<String, String> schema;
     private List<TableRelationship> relationships; // New field for relationships
+    private List<String> naturalKey; // Columns that identify a record for upserts, backed by a unique index
+    private String storageCollection; // Dedicated record collection; null means the shared schemas_records
+    private StorageMigration storageMigration; // Progress of the last move to a dedicated collection
+    private TimeSeries timeSeries; // Set for append-only tables stored in a MongoDB time-series collection
+    private Ttl ttl; // Automatic expiry of records, enforced by a TTL index
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -37,6 +42,48 @@ public class TableSchema {
         this.relationships = relationships;
     }
 
+    @Data
+    public static class StorageMigration {
+        public static final String STATUS_COPYING = "COPYING";     // Copying to the target, the source is authoritative
+        public static final String STATUS_CLEANING = "CLEANING";   // Switched to the target, source rows being removed
+        public static final String STATUS_COMPLETED = "COMPLETED";
+        public static final String STATUS_FAILED = "FAILED";
+
+        private String targetCollection;
+        private String status;          // COPYING, CLEANING, COMPLETED, FAILED
+        private long copiedRecords;
+        private String error;
+        private String owner;           // Run holding the lease; renewed through heartbeatAt
+        private LocalDateTime startedAt;
+        private LocalDateTime heartbeatAt;
+        private LocalDateTime finishedAt;
+
+        // Records of the table are in two collections while copying or cleaning up
+        public boolean inProgress() {
+            return STATUS_COPYING.equals(status) || STATUS_CLEANING.equals(status);
+        }
+    }
+
+    @Data
+    public static class TimeSeries {
+        // Top-level fields of the stored records that the collection is declared with
+        public static final String TIME_FIELD = "timestamp";
+        public static final String META_FIELD = "meta";
+
+        private String timeField;       // DATE/DATETIME/TIMESTAMP column holding each record's time
+        private String metaField;       // Optional column identifying the series, e.g. a sensor id
+        private String granularity;     // SECONDS, MINUTES or HOURS
+    }
+
+    @Data
+    public static class Ttl {
+        // Top-level date of the stored records that mirrors the expiry column
+        public static final String EXPIRES_AT_FIELD = "expiresAt";
+
+        private Long expireAfterSeconds; // Records expire this long after they were created
+        private String expiresAtField;   // Or: DATE/DATETIME/TIMESTAMP column holding each record's expiry time
+    }
+
     @Data
     public static class TableRelationship {
         private String foreignKeyColumn;
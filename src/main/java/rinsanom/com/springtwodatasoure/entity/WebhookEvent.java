@@ -0,0 +1,33 @@
+package rinsanom.com.springtwodatasoure.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Document(collection = "webhook_outbox")
+public class WebhookEvent {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DELIVERED = "DELIVERED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    private String id;
+    private String subscriptionId;
+    private String projectId;
+    private String schemaName;
+    private String op; // insert or update
+    private String recordId;
+    private Map<String, Object> record; // The record as written
+    private Instant occurredAt;
+    private String status;
+    private int attempts;
+    private String lastError;
+    private Instant nextAttemptAt; // Not delivered before this time, pushed back on every failed attempt
+    private String lockedBy; // Dispatcher that claimed the event for delivery, until lockedUntil
+    private Instant lockedUntil;
+    private Instant completedAt; // Delivered or given up; old events are removed by a TTL index on this field
+}
@@ -0,0 +1,25 @@
+package rinsanom.com.springtwodatasoure.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Document(collection = "webhook_subscriptions")
+public class WebhookSubscription {
+    @Id
+    private String id;
+    private String projectId;
+    private String schemaName;
+    private String url; // Receives a POST with a batch of events
+    private List<String> events; // insert and / or update
+    private String secret; // Key of the HMAC-SHA256 signature sent with every delivery
+    private LocalDateTime createdAt;
+
+    public WebhookSubscription() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
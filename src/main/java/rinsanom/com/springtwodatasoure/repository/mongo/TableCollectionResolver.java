@@ -0,0 +1,122 @@
+package rinsanom.com.springtwodatasoure.repository.mongo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the MongoDB collection that holds the records of a dynamic table.
+ * Tables live in the shared {@code schemas_records} collection unless their
+ * schema points at a dedicated collection (see {@link TableSchema#getStorageCollection()}).
+ * Lookups are cached for a short time so that record reads do not pay an extra
+ * round-trip for the schema.
+ */
+@Component
+@RequiredArgsConstructor
+public class TableCollectionResolver {
+
+    public static final String SHARED_COLLECTION = "schemas_records";
+    public static final String STORAGE_MODE_SHARED = "shared";
+    public static final String STORAGE_MODE_DEDICATED = "dedicated";
+
+    private final TableSchemaRepository tableSchemaRepository;
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    @Value("${app.tables.storage-mode:shared}")
+    private String storageMode;
+
+    @Value("${app.tables.storage-cache-ttl-seconds:30}")
+    private long cacheTtlSeconds;
+
+    /**
+     * Where a table's records live, plus the collection that deletes are mirrored to while the table
+     * is being migrated (if any) and whether that is an append-only time-series collection.
+     */
+    public record Route(String collection, String mirrorCollection, boolean timeSeries, long loadedAt) {
+    }
+
+    public String collectionFor(TableSchema tableSchema) {
+        return tableSchema.getStorageCollection() != null ? tableSchema.getStorageCollection() : SHARED_COLLECTION;
+    }
+
+    public String collectionFor(String schemaName, String projectId) {
+        return routeFor(schemaName, projectId).collection();
+    }
+
+    public Route routeFor(String schemaName, String projectId) {
+        String key = projectId + "|" + schemaName;
+        Route cached = routes.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < cacheTtlSeconds * 1000) {
+            return cached;
+        }
+        Route route = loadRoute(schemaName, projectId);
+        routes.put(key, route);
+        return route;
+    }
+
+    public void evict(String schemaName, String projectId) {
+        routes.remove(projectId + "|" + schemaName);
+        routes.remove(null + "|" + schemaName);
+    }
+
+    // Collection name used for a table when it gets its own storage
+    public String dedicatedCollectionName(String schemaName, String projectId) {
+        return "records_" + projectId + "_" + schemaName.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    // Whether newly created tables should get a dedicated collection
+    public boolean isDedicatedMode() {
+        return STORAGE_MODE_DEDICATED.equalsIgnoreCase(storageMode);
+    }
+
+    private Route loadRoute(String schemaName, String projectId) {
+        long now = System.currentTimeMillis();
+
+        if (projectId != null && !projectId.isEmpty()) {
+            return tableSchemaRepository.findBySchemaNameAndProjectId(schemaName, projectId)
+                    .map(schema -> new Route(collectionFor(schema), mirrorCollectionOf(schema),
+                            schema.getTimeSeries() != null, now))
+                    .orElse(new Route(SHARED_COLLECTION, null, false, now));
+        }
+
+        // Reads that are not scoped to a project only work while the tables share one collection
+        List<TableSchema> tables = tableSchemaRepository.findBySchemaName(schemaName);
+        List<String> collections = tables.stream()
+                .map(this::collectionFor)
+                .distinct()
+                .toList();
+        if (collections.size() > 1) {
+            throw new RuntimeException("projectId is required: table '" + schemaName + "' is stored in several collections");
+        }
+        boolean timeSeries = tables.stream().anyMatch(schema -> schema.getTimeSeries() != null);
+        return new Route(collections.isEmpty() ? SHARED_COLLECTION : collections.get(0), null, timeSeries, now);
+    }
+
+    // The target while copying, so deleted records are not left in the copy; the source while it is cleaned up
+    // after the switch, so a late catch-up from it cannot bring a deleted record back
+    private String mirrorCollectionOf(TableSchema schema) {
+        TableSchema.StorageMigration migration = schema.getStorageMigration();
+        if (migration == null) {
+            return null;
+        }
+        if (TableSchema.StorageMigration.STATUS_COPYING.equals(migration.getStatus())) {
+            return migration.getTargetCollection();
+        }
+        if (TableSchema.StorageMigration.STATUS_CLEANING.equals(migration.getStatus())) {
+            return SHARED_COLLECTION;
+        }
+        return null;
+    }
+
+    // How long a node may keep using a route it has cached, e.g. to write to a table's old collection
+    public Duration cacheTtl() {
+        return Duration.ofSeconds(cacheTtlSeconds);
+    }
+}
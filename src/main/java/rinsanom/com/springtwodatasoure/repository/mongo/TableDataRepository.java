@@ -1,18 +0,0 @@
-package rinsanom.com.springtwodatasoure.repository.mongo;
-
-import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.stereotype.Repository;
-import rinsanom.com.springtwodatasoure.entity.TableData;
-
-import java.util.List;
-import java.util.Optional;
-
-@Repository
-public interface TableDataRepository extends MongoRepository<TableData, String> {
-    List<TableData> findBySchemaNameAndProjectId(String schemaName, String projectId);
-    List<TableData> findBySchemaName(String schemaName);
-    List<TableData> findByProjectId(String projectId);
-    Optional<TableData> findByIdAndSchemaNameAndProjectId(String id, String schemaName, String projectId);
-    void deleteBySchemaNameAndProjectId(String schemaName, String projectId);
-    void deleteByIdAndSchemaNameAndProjectId(String id, String schemaName, String projectId);
-}
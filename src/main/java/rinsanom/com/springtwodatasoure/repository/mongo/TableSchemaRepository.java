@@ -11,5 +11,6 @@ import java.util.Optional;
 public interface TableSchemaRepository extends MongoRepository<TableSchema, String> {
     List<TableSchema> findByProjectId(String projectId);
     Optional<TableSchema> findBySchemaNameAndProjectId(String schemaName, String projectId);
+    List<TableSchema> findBySchemaName(String schemaName);
     List<TableSchema> findAllByOrderByCreatedAtDesc();
 }
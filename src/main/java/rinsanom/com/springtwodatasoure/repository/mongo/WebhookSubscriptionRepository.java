@@ -0,0 +1,13 @@
+package rinsanom.com.springtwodatasoure.repository.mongo;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import rinsanom.com.springtwodatasoure.entity.WebhookSubscription;
+
+import java.util.List;
+
+@Repository
+public interface WebhookSubscriptionRepository extends MongoRepository<WebhookSubscription, String> {
+    List<WebhookSubscription> findByProjectIdAndSchemaName(String projectId, String schemaName);
+    void deleteByProjectIdAndSchemaName(String projectId, String schemaName);
+}
@@ -108,7 +108,7 @@ public class DynamicOpenApiService {
         getByIdOperation.put("summary", "Get " + tableName + " by ID");
         getByIdOperation.put("description", "Retrieve a specific record from " + tableName + " table");
         getByIdOperation.put("tags", Arrays.asList(tableName));
-        getByIdOperation.put("parameters", Arrays.asList(createIdParameter()));
+        getByIdOperation.put("parameters", Arrays.asList(createIdParameter(), createFieldsParameter()));
         getByIdOperation.put("responses", createGetByIdResponses(tableName, tableSchema));
         idPathOperations.put("get", getByIdOperation);
 
@@ -117,7 +117,7 @@ public class DynamicOpenApiService {
         putOperation.put("summary", "Update " + tableName + " by ID");
         putOperation.put("description", "Update a specific record in " + tableName + " table");
         putOperation.put("tags", Arrays.asList(tableName));
-        putOperation.put("parameters", Arrays.asList(createIdParameter()));
+        putOperation.put("parameters", Arrays.asList(createIdParameter(), createIfMatchParameter()));
         putOperation.put("requestBody", createRequestBody(tableName, tableSchema));
         putOperation.put("responses", createPutResponses(tableName, tableSchema));
         idPathOperations.put("put", putOperation);
@@ -177,9 +177,71 @@ public class DynamicOpenApiService {
         sortParam.put("schema", sortSchema);
         parameters.add(sortParam);
 
+        // Project parameter
+        Map<String, Object> projectParam = new HashMap<>();
+        projectParam.put("name", "projectId");
+        projectParam.put("in", "query");
+        projectParam.put("description", "Restrict results to a single project");
+        projectParam.put("required", false);
+        Map<String, Object> projectSchema = new HashMap<>();
+        projectSchema.put("type", "string");
+        projectParam.put("schema", projectSchema);
+        parameters.add(projectParam);
+        parameters.add(createFieldsParameter());
+
+        // Filter parameter
+        Map<String, Object> filterParam = new HashMap<>();
+        filterParam.put("name", "filter");
+        filterParam.put("in", "query");
+        filterParam.put("description", "Filter on columns: eq, ne, gt, gte, lt, lte, in, prefix, like (% and _ wildcards), " +
+                "exists, combined with and(...) / or(...). Example: and(gte(price,10),prefix(name,'ab')). Repeat to combine");
+        filterParam.put("required", false);
+        Map<String, Object> filterSchema = new HashMap<>();
+        filterSchema.put("type", "string");
+        filterParam.put("schema", filterSchema);
+        parameters.add(filterParam);
+
+        // Cursor parameter
+        Map<String, Object> cursorParam = new HashMap<>();
+        cursorParam.put("name", "cursor");
+        cursorParam.put("in", "query");
+        cursorParam.put("description", "Keyset paging instead of page numbers: send an empty cursor for the first page, " +
+                "then the 'next' value of each response until it is null. Sorting is limited to id, createdAt and indexed columns");
+        cursorParam.put("required", false);
+        Map<String, Object> cursorSchema = new HashMap<>();
+        cursorSchema.put("type", "string");
+        cursorParam.put("schema", cursorSchema);
+        parameters.add(cursorParam);
+
         return parameters;
     }
 
+    private Map<String, Object> createIfMatchParameter() {
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("name", "If-Match");
+        parameter.put("in", "header");
+        parameter.put("description", "ETag returned by a previous read; the update fails with 412 if the record has changed since");
+        parameter.put("required", false);
+
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("type", "string");
+        parameter.put("schema", schema);
+
+        return parameter;
+    }
+
+    private Map<String, Object> createFieldsParameter() {
+        Map<String, Object> fieldsParam = new HashMap<>();
+        fieldsParam.put("name", "fields");
+        fieldsParam.put("in", "query");
+        fieldsParam.put("description", "Comma-separated list of columns to return. Example: name,price");
+        fieldsParam.put("required", false);
+        Map<String, Object> fieldsSchema = new HashMap<>();
+        fieldsSchema.put("type", "string");
+        fieldsParam.put("schema", fieldsSchema);
+        return fieldsParam;
+    }
+
     private Map<String, Object> createIdParameter() {
         Map<String, Object> parameter = new HashMap<>();
         parameter.put("name", "id");
@@ -292,7 +354,20 @@ public class DynamicOpenApiService {
         arraySchema.put("type", "array");
         arraySchema.put("items", createTableSchema(tableName, tableSchema));
 
-        mediaType.put("schema", arraySchema);
+        // Paged response wrapper
+        Map<String, Object> pageSchema = new HashMap<>();
+        pageSchema.put("type", "object");
+        Map<String, Object> pageProperties = new HashMap<>();
+        pageProperties.put("content", arraySchema);
+        pageProperties.put("page", Map.of("type", "integer", "description", "Current page number (starts from 0)"));
+        pageProperties.put("size", Map.of("type", "integer", "description", "Page size actually applied"));
+        pageProperties.put("totalElements", Map.of("type", "integer", "format", "int64", "description", "Total number of matching records"));
+        pageProperties.put("totalPages", Map.of("type", "integer", "format", "int64", "description", "Total number of pages"));
+        pageProperties.put("hasNext", Map.of("type", "boolean", "description", "Whether another page is available"));
+        pageProperties.put("next", Map.of("type", "string", "nullable", true, "description", "Cursor for the following page (cursor paging only)"));
+        pageSchema.put("properties", pageProperties);
+
+        mediaType.put("schema", pageSchema);
         content.put("application/json", mediaType);
         successResponse.put("content", content);
 
@@ -358,6 +433,7 @@ public class DynamicOpenApiService {
 
         responses.put("200", successResponse);
         responses.put("404", createErrorResponse("Record not found"));
+        responses.put("412", createErrorResponse("Record was modified since the If-Match version"));
         responses.put("400", createErrorResponse("Bad Request"));
         responses.put("500", createErrorResponse("Internal Server Error"));
 
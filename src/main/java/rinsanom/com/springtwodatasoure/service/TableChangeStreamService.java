@@ -0,0 +1,29 @@
+package rinsanom.com.springtwodatasoure.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+
+import java.util.List;
+
+/**
+ * Pushes the record changes of a dynamic table to subscribers as Server-Sent Events,
+ * driven by a MongoDB change stream on the collection that stores the table.
+ */
+public interface TableChangeStreamService {
+
+    String OP_INSERT = "insert";
+    String OP_UPDATE = "update";
+    String OP_DELETE = "delete";
+
+    /**
+     * Opens a change feed for one table. Every event carries its resume token as the SSE id,
+     * so a client that reconnects with it (or with {@code Last-Event-ID}) misses nothing.
+     *
+     * @param tableSchema the table to watch; time-series tables have no change stream
+     * @param operations  {@link #OP_INSERT}, {@link #OP_UPDATE} and / or {@link #OP_DELETE}; null or empty for all
+     * @param filters     filter expressions as in the listing, evaluated on the changed record
+     * @param resumeToken where to resume a previous feed, or null to start with the next change
+     * @return the emitter to return from the request; it is closed when the client goes away
+     */
+    SseEmitter subscribe(TableSchema tableSchema, List<String> operations, List<String> filters, String resumeToken);
+}
@@ -0,0 +1,26 @@
+package rinsanom.com.springtwodatasoure.service;
+
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+
+import java.io.OutputStream;
+
+/**
+ * Streams the records of a dynamic table straight from a MongoDB cursor
+ * so that memory use does not grow with the size of the table.
+ */
+public interface TableExportService {
+
+    String FORMAT_NDJSON = "ndjson";
+    String FORMAT_CSV = "csv";
+
+    /**
+     * Writes every record of the table to the given stream.
+     *
+     * @param tableSchema the table being exported (its columns drive the CSV header)
+     * @param format      {@link #FORMAT_NDJSON} or {@link #FORMAT_CSV}
+     * @param out         the response stream; the export stops quietly if the client goes away
+     */
+    void exportTable(TableSchema tableSchema, String format, OutputStream out);
+
+    boolean isSupportedFormat(String format);
+}
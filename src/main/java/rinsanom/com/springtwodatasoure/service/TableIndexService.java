@@ -0,0 +1,68 @@
+package rinsanom.com.springtwodatasoure.service;
+
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+
+import java.util.Set;
+
+/**
+ * Maintains the MongoDB indexes behind dynamic tables: the compound
+ * indexes on each record collection and the column indexes derived
+ * from each {@link TableSchema}.
+ */
+public interface TableIndexService {
+
+    /**
+     * Creates the compound (projectId, schemaName, ...) indexes on a record collection if they are missing.
+     */
+    void ensureBaseIndexes(String collection);
+
+    /**
+     * Brings the indexes on {@code data.<column>} in line with the table schema:
+     * indexes for columns declared UNIQUE / INDEX or used as a relationship foreign key
+     * are created, indexes for columns that no longer qualify are dropped. UNIQUE columns get a
+     * unique index over the records holding a value in the column (missing and null values never collide);
+     * existing duplicates fail the sync with the clashing values. In the shared collection the other columns
+     * use one (projectId, schemaName, column) index per column name for all tables stored there, so the
+     * index count does not grow with the number of tables. Failures are thrown.
+     */
+    void syncTableIndexes(TableSchema tableSchema);
+
+    /**
+     * Creates, replaces or drops the unique index behind the table's natural key so that it matches
+     * {@link TableSchema#getNaturalKey()}. Unlike {@link #syncTableIndexes}, failures are thrown, e.g. when
+     * existing records already contain duplicate keys.
+     */
+    void syncNaturalKeyIndex(TableSchema tableSchema);
+
+    /**
+     * Column whose unique index rejected a write, read from the duplicate key error message; null when the
+     * conflict was on another index, such as the natural key or {@code _id}.
+     */
+    String uniqueColumnOf(String duplicateKeyMessage);
+
+    /**
+     * Enforces {@link TableSchema#getTtl()}: a partial TTL index on {@code createdAt} for a fixed lifetime,
+     * or on the mirrored expiry date for a per-record expiry column; time-series tables use the collection's
+     * own {@code expireAfterSeconds}. A changed lifetime is applied in place. Failures are thrown.
+     */
+    void syncTtlIndex(TableSchema tableSchema);
+
+    /**
+     * Name of the full-text index on a dedicated record collection, over the SEARCHABLE columns of its table
+     * and prefixed with (projectId, schemaName). MongoDB allows a single text index per collection, so the
+     * shared collection has none and tables stored there cannot be searched.
+     */
+    String TEXT_INDEX_NAME = "project_schema_text";
+
+    /**
+     * Drops every index that belongs to the given table alone; column path indexes of the shared collection
+     * are cleaned up at startup once no table uses them.
+     */
+    void dropTableIndexes(TableSchema tableSchema);
+
+    /**
+     * Columns of the table that are backed by a partial ascending index; POINT and GEOMETRY columns
+     * get a 2dsphere index instead and are not part of this set.
+     */
+    Set<String> indexedColumns(TableSchema tableSchema);
+}
@@ -1,12 +1,21 @@
 package rinsanom.com.springtwodatasoure.service;
 
+import rinsanom.com.springtwodatasoure.dto.AggregateRequestDTO;
 import rinsanom.com.springtwodatasoure.dto.CreateTableWithRelationshipsDTO;
+import rinsanom.com.springtwodatasoure.dto.RecordOperationsRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.TransactionRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.WebhookRequestDTO;
 import rinsanom.com.springtwodatasoure.entity.TableSchema;
 
 import java.util.List;
 import java.util.Map;
 
 public interface TableService {
+
+    // Key of the record version in returned records; prefixed like _score and _distance so that a
+    // user column named "version" is not overwritten
+    String VERSION_FIELD = "_version";
+
     void createTables(String projectId , String schemaName, Map< String , String> schema  );
 
     void dropTables();
@@ -21,20 +30,133 @@ public interface TableService {
 
     TableSchema getTableByNameAndProject(String schemaName, String projectId);
 
+    // Drops a table: its schema, records, endpoint documentation and indexes
+    void deleteTable(String schemaName, String projectId);
+
+    // Declares the columns that identify a record (empty or null removes the natural key); the unique index
+    // is built before the schema is saved, so duplicates in existing data are reported instead of ignored
+    TableSchema setNaturalKey(String schemaName, String projectId, List<String> columns);
+
+    // Lets records expire server-side through a TTL index: a fixed lifetime after creation, or the date in a
+    // DATE/DATETIME/TIMESTAMP column of each record; both null removes the TTL
+    TableSchema setTtl(String schemaName, String projectId, Long expireAfterSeconds, String expiresAtField);
+
+    // Webhooks POST batches of the table's inserted / updated records to a URL, delivered in the background from an
+    // outbox with retries; the created webhook includes its signing secret, which is not returned again
+    Map<String, Object> createWebhook(String schemaName, String projectId, WebhookRequestDTO request);
+
+    List<Map<String, Object>> getWebhooks(String schemaName, String projectId);
+
+    void deleteWebhook(String schemaName, String projectId, String webhookId);
+
+    // Inserts the row, or updates the record with the same natural key; returns id, version and created
+    Map<String, Object> upsertRecord(String schemaName, String projectId, Map<String, Object> row);
+
+    // Bulk variant of upsertRecord with one round-trip per chunk; returns per-row created/updated/failed results
+    Map<String, Object> upsertRecords(String schemaName, String projectId, List<Map<String, Object>> rows);
+
+    // Moves a table's records to a collection of its own; returns the target collection
+    String migrateTableStorage(String schemaName, String projectId);
+
     // New methods for data operations
     void insertData(String schemaName, String projectId, Map<String, Object> data);
 
+    // Bulk insert: validates project and schema once, writes rows with unordered insertMany in chunks
+    Map<String, Object> insertDataBatch(String schemaName, String projectId, List<Map<String, Object>> rows);
+
     List<Map<String, Object>> getAllDataFromTable(String schemaName);
 
     List<Map<String, Object>> getDataFromTableByProject(String schemaName, String projectId);
 
+    // Paginated read (page/size/sort pushed down to MongoDB); projectId may be null to span all projects,
+    // fields (nullable) limits the returned columns through a MongoDB projection, filters (nullable) are
+    // filter expressions such as "and(gte(price,10),prefix(name,'ab'))" that must all match
+    Map<String, Object> getDataPage(String schemaName, String projectId, int page, int size, String sort,
+                                    List<String> fields, List<String> filters);
+
+    // Keyset read: the page after the opaque cursor (null or blank for the first page), answered by an
+    // indexed range query instead of skip; the result carries the cursor for the following page as "next"
+    Map<String, Object> getDataAfter(String schemaName, String projectId, String cursor, int size, String sort,
+                                     List<String> fields, List<String> filters);
+
+    // Number of records matching the filters (nullable) as in getDataPage. Unfiltered counts of a table with its own
+    // collection come from collection metadata once the table is large, unless exact is set; "exact" and "method"
+    // in the result tell which count was returned
+    Map<String, Object> countRecords(String schemaName, String projectId, List<String> filters, boolean exact);
+
+    // Full-text search over the table's SEARCHABLE columns, best matches first; page shape as getDataPage
+    // with a "_score" relevance value on every record
+    Map<String, Object> searchRecords(String schemaName, String projectId, String text, int page, int size);
+
+    // Records whose POINT/GEOMETRY column lies within maxDistance meters (optional) of a position, nearest first,
+    // each with a "_distance" in meters; filters narrow the candidates as in getDataPage
+    Map<String, Object> findNear(String schemaName, String projectId, String column, double longitude, double latitude,
+                                 Double maxDistance, int limit, List<String> filters);
+
+    // Records of a time-series table with from <= time < to (both optional), in time order, optionally of one series
+    // (meta); paged through the returned "next" cursor like getDataAfter
+    Map<String, Object> getTimeSeriesRange(String schemaName, String projectId, String from, String to, String meta,
+                                           String order, String cursor, int size, List<String> filters);
+
+    // Fixed-width time buckets (interval such as 30s, 5m, 1h) over from <= time < to with the record count and
+    // avg/min/max/sum of the given numeric columns; byMeta splits every bucket per series
+    Map<String, Object> aggregateTimeSeries(String schemaName, String projectId, String from, String to, String interval,
+                                            List<String> columns, String meta, boolean byMeta, List<String> filters);
+
+    // Distinct values of a column among the records matching the filters, in ascending order and capped at limit;
+    // ARRAY columns contribute their elements. "truncated" tells whether more values exist
+    Map<String, Object> distinctValues(String schemaName, String projectId, String column, List<String> filters, int limit);
+
+    // Per column, the limit most frequent values among the records matching the filters with their record counts,
+    // computed in one server-side pass; "matched" is the number of matching records
+    Map<String, Object> facetCounts(String schemaName, String projectId, List<String> columns, List<String> filters, int limit);
+
+    // Groups the records matching the request's filters by columns and/or time buckets and computes count, sum, avg,
+    // min and max per group in MongoDB, with having, sort and limit applied to the groups
+    Map<String, Object> aggregateRecords(String schemaName, String projectId, AggregateRequestDTO request);
+
     // Additional CRUD methods for dynamic endpoints
     Map<String, Object> getRecordById(String schemaName, String id);
 
+    Map<String, Object> getRecordById(String schemaName, String projectId, String id, List<String> fields);
+
+    // Fetches many records by id with one $in query; results follow the order of ids, missing ids are
+    // returned as {"id": ..., "found": false}
+    Map<String, Object> getRecordsByIds(String schemaName, String projectId, List<String> ids, List<String> fields);
+
     void updateRecord(String schemaName, String id, Map<String, Object> data);
 
+    // Atomic partial update ($set on data.<field>); expectedVersion (nullable) enables optimistic concurrency.
+    // Throws ResponseStatusException 404 when the record does not exist and 412 when the version does not match.
+    Map<String, Object> updateRecord(String schemaName, String projectId, String id, Map<String, Object> data, Long expectedVersion);
+
+    // Rejected: record deletes must name the project, see deleteRecord(schemaName, projectId, id)
     void deleteRecord(String schemaName, String id);
 
+    // Single conditional delete scoped to table and project (required); throws ResponseStatusException 404 when nothing matched
+    void deleteRecord(String schemaName, String projectId, String id);
+
+    // Applies server-side atomic operators ($inc, $push, $pull, $min, $max) to a record's columns, checked
+    // against the column types; returns the updated record. Same 404 / 412 semantics as updateRecord
+    Map<String, Object> applyRecordOperations(String schemaName, String projectId, String id,
+                                              RecordOperationsRequestDTO operations, Long expectedVersion);
+
+    // Deletes many records by id of one project (required) in one round-trip; returns requested/deleted counts
+    Map<String, Object> deleteRecords(String schemaName, String projectId, List<String> ids);
+
+    // Runs inserts, updates and deletes across tables of one project in a single MongoDB transaction;
+    // nothing is written unless every operation succeeds. Returns the per-operation results
+    Map<String, Object> executeTransaction(String projectId, List<TransactionRequestDTO.Operation> operations);
+
+    // Sets columns on every record matching the filter expression with server-side updates; dryRun only
+    // counts, limit (nullable) caps the number of records changed. Returns matched/modified counts
+    Map<String, Object> updateMany(String schemaName, String projectId, String filter, Map<String, Object> set,
+                                   boolean dryRun, Integer limit);
+
+    // Deletes every record matching the filter expression; dryRun only counts, limit (nullable) caps the
+    // number of records deleted. Returns matched/deleted counts. Like single deletes, no webhook event is sent
+    Map<String, Object> deleteMany(String schemaName, String projectId, String filter, boolean dryRun, Integer limit);
+
     // New methods for handling table relationships
     void createTableWithRelationships(String projectId, String tableName, Map<String, String> schema, List<CreateTableWithRelationshipsDTO.TableRelationship> relationships);
 
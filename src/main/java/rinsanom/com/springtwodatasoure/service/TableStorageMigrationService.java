@@ -0,0 +1,20 @@
+package rinsanom.com.springtwodatasoure.service;
+
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+
+/**
+ * Moves the records of a dynamic table out of the shared {@code schemas_records}
+ * collection into a collection of its own, while the table stays online.
+ */
+public interface TableStorageMigrationService {
+
+    /**
+     * Starts copying the table's records to its dedicated collection in the background.
+     * Progress is tracked in {@link TableSchema#getStorageMigration()}; reads switch to the
+     * new collection once the copy has caught up, and the shared collection's rows are removed
+     * once every node has stopped writing there and the new collection holds a copy of them.
+     *
+     * @return the name of the target collection
+     */
+    String startMigration(TableSchema tableSchema);
+}
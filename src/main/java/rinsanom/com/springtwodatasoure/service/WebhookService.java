@@ -0,0 +1,52 @@
+package rinsanom.com.springtwodatasoure.service;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import rinsanom.com.springtwodatasoure.dto.WebhookRequestDTO;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Webhook subscriptions on dynamic tables. Writes only append events to the
+ * {@code webhook_outbox} collection; a background dispatcher delivers them in
+ * batches with retries, so receivers never slow down the write path.
+ * <p>
+ * Inserts and updates are published from every write path, including batch inserts, upserts,
+ * filter-based updates and transactions. Deletes are not: subscriptions accept only
+ * {@link #EVENT_INSERT} and {@link #EVENT_UPDATE}.
+ */
+public interface WebhookService {
+
+    String EVENT_INSERT = "insert";
+    String EVENT_UPDATE = "update";
+
+    /**
+     * Registers a webhook on the table; the result includes the signing secret, which is not shown again.
+     */
+    Map<String, Object> createSubscription(TableSchema tableSchema, WebhookRequestDTO request);
+
+    List<Map<String, Object>> listSubscriptions(TableSchema tableSchema);
+
+    void deleteSubscription(TableSchema tableSchema, String subscriptionId);
+
+    /**
+     * Removes every webhook of a table that is being dropped.
+     */
+    void deleteSubscriptions(TableSchema tableSchema);
+
+    /**
+     * Appends one outbox event per record and subscribed webhook. Does nothing when the table has no
+     * webhook for the event, so unsubscribed tables pay no extra write.
+     *
+     * @param operations where to write the events; a transaction's operations make them commit with the records
+     * @param records    the written records, as returned to the caller (id, version, columns)
+     */
+    void enqueue(MongoOperations operations, String projectId, String schemaName, String event, List<Map<String, Object>> records);
+
+    /**
+     * Whether the table has a webhook for the event; bulk writes that would otherwise not read the changed
+     * records check this before re-reading them for the events.
+     */
+    boolean hasSubscribers(String projectId, String schemaName, String event);
+}
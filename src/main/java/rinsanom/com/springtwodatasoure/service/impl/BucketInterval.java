@@ -0,0 +1,33 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Width of the time buckets of an aggregation, written as a count and a unit:
+ * {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}, {@code 1w}, {@code 1M} (month) or {@code 1y}.
+ * Maps onto the {@code unit} and {@code binSize} of MongoDB's {@code $dateTrunc}; {@code millis}
+ * is exact up to weeks and the shortest possible length for months and years.
+ */
+record BucketInterval(int binSize, String unit, long millis) {
+
+    private static final Pattern FORMAT = Pattern.compile("(\\d{1,6})([smhdwMy])");
+
+    private static final Map<String, String> UNITS = Map.of(
+            "s", "second", "m", "minute", "h", "hour", "d", "day", "w", "week", "M", "month", "y", "year");
+
+    private static final Map<String, Long> UNIT_MILLIS = Map.of(
+            "s", 1_000L, "m", 60_000L, "h", 3_600_000L, "d", 86_400_000L, "w", 604_800_000L,
+            "M", 2_419_200_000L, "y", 31_536_000_000L);
+
+    static BucketInterval parse(String text) {
+        Matcher matcher = FORMAT.matcher(text == null ? "" : text.trim());
+        if (!matcher.matches() || Integer.parseInt(matcher.group(1)) == 0) {
+            throw new RuntimeException("Invalid interval '" + text + "', expected e.g. 30s, 5m, 1h, 1d, 1w, 1M or 1y");
+        }
+        int binSize = Integer.parseInt(matcher.group(1));
+        String unit = matcher.group(2);
+        return new BucketInterval(binSize, UNITS.get(unit), binSize * UNIT_MILLIS.get(unit));
+    }
+}
@@ -0,0 +1,222 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed form of a column type string from {@code TableSchema.schema},
+ * e.g. {@code "VARCHAR(255) UNIQUE"}, {@code "INT INDEX"}, {@code "TEXT SEARCHABLE"}, {@code "TEXT[]"} or {@code "POINT"}.
+ * POINT and GEOMETRY columns hold GeoJSON objects and always get a 2dsphere index.
+ */
+public record ColumnDefinition(
+        String name,
+        String baseType,
+        Kind kind,
+        Kind elementKind,   // Element type of ARRAY columns declared as "TYPE[]"; null when untyped or not an array
+        boolean unique,
+        boolean indexed,
+        boolean searchable  // Part of the table's full-text index (text columns only)
+) {
+
+    public enum Kind { STRING, INTEGER, NUMBER, BOOLEAN, DATE, ARRAY, POINT, GEOMETRY }
+
+    private static final Set<String> GEOMETRY_TYPES = Set.of(
+            "Point", "MultiPoint", "LineString", "MultiLineString", "Polygon", "MultiPolygon");
+
+    private static final List<DateTimeFormatter> ISO_FORMATS = List.of(
+            DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ISO_LOCAL_TIME);
+
+    public static ColumnDefinition parse(String name, String typeString) {
+        String normalized = typeString == null ? "" : typeString.trim().toUpperCase(Locale.ROOT);
+        List<String> tokens = Arrays.asList(normalized.split("\\s+"));
+
+        String baseType = tokens.isEmpty() ? "" : tokens.get(0);
+        int parenthesis = baseType.indexOf('(');
+        if (parenthesis >= 0) {
+            baseType = baseType.substring(0, parenthesis);
+        }
+
+        boolean primaryKey = normalized.contains("PRIMARY KEY");
+        boolean unique = primaryKey || tokens.contains("UNIQUE");
+        boolean indexed = tokens.contains("INDEX") || tokens.contains("INDEXED");
+        boolean searchable = tokens.contains("SEARCHABLE") || tokens.contains("FULLTEXT");
+
+        Kind elementKind = null;
+        Kind kind;
+        if (baseType.endsWith("[]")) {
+            elementKind = kindOf(baseType.substring(0, baseType.length() - 2));
+            kind = Kind.ARRAY;
+        } else {
+            kind = kindOf(baseType);
+        }
+
+        return new ColumnDefinition(name, baseType, kind, elementKind, unique, indexed,
+                searchable && (kind == Kind.STRING || elementKind == Kind.STRING));
+    }
+
+    // POINT and GEOMETRY columns: GeoJSON values, queried through the 2dsphere index
+    public boolean isGeo() {
+        return kind == Kind.POINT || kind == Kind.GEOMETRY;
+    }
+
+    // Definition of a single element of an ARRAY column
+    public ColumnDefinition elementDefinition() {
+        return new ColumnDefinition(name, baseType, elementKind, null, false, false, false);
+    }
+
+    // Whether a JSON value (as bound by Jackson) fits the column
+    public boolean accepts(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (kind == Kind.ARRAY) {
+            return value instanceof List<?> list
+                    && (elementKind == null || list.stream().allMatch(element -> accepts(elementKind, element)));
+        }
+        return accepts(kind, value);
+    }
+
+    // Whether a single array element (as bound by Jackson) fits an ARRAY column
+    public boolean acceptsElement(Object value) {
+        return kind == Kind.ARRAY && (elementKind == null || value == null || accepts(elementKind, value));
+    }
+
+    private static boolean accepts(Kind kind, Object value) {
+        switch (kind) {
+            case INTEGER:
+                return value instanceof Integer || value instanceof Long || value instanceof Short
+                        || value instanceof Byte || value instanceof BigInteger;
+            case NUMBER:
+                return value instanceof Number;
+            case BOOLEAN:
+                return value instanceof Boolean;
+            case DATE:
+                return value instanceof String text && isIsoDate(text);
+            case ARRAY:
+                return value instanceof List;
+            case POINT:
+                return value instanceof Map<?, ?> geoJson && "Point".equals(geoJson.get("type"))
+                        && isPosition(geoJson.get("coordinates"));
+            case GEOMETRY:
+                return isGeometry(value);
+            default:
+                return value instanceof String;
+        }
+    }
+
+    // GeoJSON geometry object; coordinates are only checked for shape here, MongoDB validates them on write
+    private static boolean isGeometry(Object value) {
+        if (!(value instanceof Map<?, ?> geoJson) || !(geoJson.get("type") instanceof String type)) {
+            return false;
+        }
+        if ("GeometryCollection".equals(type)) {
+            return geoJson.get("geometries") instanceof List<?> geometries
+                    && geometries.stream().allMatch(ColumnDefinition::isGeometry);
+        }
+        if ("Point".equals(type)) {
+            return isPosition(geoJson.get("coordinates"));
+        }
+        return GEOMETRY_TYPES.contains(type) && geoJson.get("coordinates") instanceof List;
+    }
+
+    // [longitude, latitude] in WGS84 degrees
+    private static boolean isPosition(Object value) {
+        return value instanceof List<?> position && position.size() == 2
+                && position.get(0) instanceof Number longitude && Math.abs(longitude.doubleValue()) <= 180
+                && position.get(1) instanceof Number latitude && Math.abs(latitude.doubleValue()) <= 90;
+    }
+
+    // Dates are stored as ISO-8601 strings: date, date-time (with or without offset) or time
+    public static boolean isIsoDate(String text) {
+        for (DateTimeFormatter format : ISO_FORMATS) {
+            try {
+                format.parse(text);
+                return true;
+            } catch (DateTimeParseException ignored) {
+                // try the next format
+            }
+        }
+        return false;
+    }
+
+    // Instant of an ISO date or date-time; values without an offset are taken as UTC, time-only values have none
+    public static Instant toInstant(String text) {
+        try {
+            return OffsetDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException ignored) {
+            // no offset
+        }
+        try {
+            return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignored) {
+            // not a date-time
+        }
+        try {
+            return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Keeps the declaration order of the schema map
+    public static Map<String, ColumnDefinition> parseSchema(Map<String, String> schema) {
+        Map<String, ColumnDefinition> columns = new LinkedHashMap<>();
+        if (schema != null) {
+            schema.forEach((column, type) -> columns.put(column, parse(column, type)));
+        }
+        return columns;
+    }
+
+    // Same vocabulary as DynamicOpenApiService.convertToOpenApiType
+    private static Kind kindOf(String baseType) {
+        switch (baseType) {
+            case "INT":
+            case "INTEGER":
+            case "BIGINT":
+            case "SMALLINT":
+            case "TINYINT":
+                return Kind.INTEGER;
+            case "DOUBLE":
+            case "FLOAT":
+            case "DECIMAL":
+            case "NUMERIC":
+            case "REAL":
+                return Kind.NUMBER;
+            case "BOOLEAN":
+            case "BOOL":
+            case "BIT":
+                return Kind.BOOLEAN;
+            case "DATE":
+            case "DATETIME":
+            case "TIMESTAMP":
+            case "TIME":
+                return Kind.DATE;
+            case "ARRAY":
+            case "LIST":
+                return Kind.ARRAY;
+            case "POINT":
+                return Kind.POINT;
+            case "GEOMETRY":
+            case "GEOGRAPHY":
+            case "GEOJSON":
+                return Kind.GEOMETRY;
+            default:
+                return Kind.STRING;
+        }
+    }
+}
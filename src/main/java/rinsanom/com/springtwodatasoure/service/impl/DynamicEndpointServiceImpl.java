@@ -130,10 +130,11 @@ public class DynamicEndpointServiceImpl implements DynamicEndpointService {
 
         // GET all records
         doc.append("1. GET ").append(basePath).append("\n");
-        doc.append("   Description: Get all records from ").append(tableName).append(" table\n");
-        doc.append("   Response: Array of objects matching the table schema\n");
-        doc.append("   Response Schema: ").append(exampleRequestBody).append("\n");
-        doc.append("   Example: curl -X GET http://localhost:8080").append(basePath).append("\n\n");
+        doc.append("   Description: Get a page of records from ").append(tableName).append(" table\n");
+        doc.append("   Query Parameters: page (default 0), size (default 20, max 100), sort (property,asc|desc), projectId\n");
+        doc.append("   Response: { content: [...], page, size, totalElements, totalPages, hasNext }\n");
+        doc.append("   Record Schema: ").append(exampleRequestBody).append("\n");
+        doc.append("   Example: curl -X GET \"http://localhost:8080").append(basePath).append("?page=0&size=20&sort=createdAt,desc\"\n\n");
 
         // POST create record
         doc.append("2. POST ").append(basePath).append("\n");
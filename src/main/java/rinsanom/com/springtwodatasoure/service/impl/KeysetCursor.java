@@ -0,0 +1,58 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a keyset page: the sort key and _id of the last record served, plus the sort it was taken under.
+ * Tokens are URL-safe base64 of extended JSON so that BSON types (dates, ObjectIds, longs) survive the round-trip.
+ */
+record KeysetCursor(String sort, Object value, Object id) {
+
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    static String sortKey(String path, Sort.Direction direction) {
+        return path + "," + direction.name();
+    }
+
+    static KeysetCursor decode(String token, String expectedSort) {
+        Document document;
+        try {
+            document = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        if (!expectedSort.equals(document.getString("s")) || !document.containsKey("i")) {
+            throw new RuntimeException("Cursor was issued for a different sort, start again without a cursor");
+        }
+        return new KeysetCursor(document.getString("s"), document.get("v"), document.get("i"));
+    }
+
+    String encode() {
+        String json = new Document("s", sort).append("v", value).append("i", id).toJson(JSON_SETTINGS);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Records strictly after this position in (path direction, _id ASC) order; null sorts lowest, as in MongoDB
+    Criteria after(String path, Sort.Direction direction) {
+        Criteria sameKeyLaterId = new Criteria().andOperator(
+                Criteria.where(path).is(value), Criteria.where("_id").gt(id));
+        if ("_id".equals(path)) {
+            return Criteria.where("_id").gt(id);
+        }
+        if (direction.isAscending()) {
+            return value == null
+                    ? new Criteria().orOperator(sameKeyLaterId, Criteria.where(path).ne(null))
+                    : new Criteria().orOperator(Criteria.where(path).gt(value), sameKeyLaterId);
+        }
+        return value == null
+                ? sameKeyLaterId
+                : new Criteria().orOperator(Criteria.where(path).lt(value), sameKeyLaterId, Criteria.where(path).is(null));
+    }
+}
@@ -0,0 +1,300 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import rinsanom.com.springtwodatasoure.entity.TableData;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+import rinsanom.com.springtwodatasoure.repository.mongo.TableCollectionResolver;
+import rinsanom.com.springtwodatasoure.service.TableChangeStreamService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TableChangeStreamServiceImpl implements TableChangeStreamService {
+
+    private static final String FULL_DOCUMENT = "fullDocument.";
+    private static final String BEFORE_CHANGE = "fullDocumentBeforeChange.";
+
+    private final MongoTemplate mongoTemplate;
+    private final TableCollectionResolver tableCollectionResolver;
+
+    // Each subscriber parks a virtual thread on its change stream cursor, so open feeds do not hold platform threads
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("table-changes-", 0).factory());
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Set<String> preImageCollections = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.tables.change-stream-max-subscribers:200}")
+    private int maxSubscribers;
+
+    @Value("${app.tables.change-stream-heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${app.tables.change-stream-pre-images:false}")
+    private boolean preImages;
+
+    @Override
+    public SseEmitter subscribe(TableSchema tableSchema, List<String> operations, List<String> filters, String resumeToken) {
+        if (tableSchema.getTimeSeries() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Time-series table '" + tableSchema.getSchemaName() + "' has no change feed");
+        }
+        Set<String> ops = new LinkedHashSet<>();
+        for (String op : operations != null && !operations.isEmpty() ? operations : List.of(OP_INSERT, OP_UPDATE, OP_DELETE)) {
+            if (!OP_INSERT.equals(op) && !OP_UPDATE.equals(op) && !OP_DELETE.equals(op)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown operation '" + op + "', expected insert, update or delete");
+            }
+            ops.add(op);
+        }
+
+        Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(tableSchema.getSchema());
+        List<Document> conditions = new ArrayList<>();
+        if (filters != null) {
+            for (String filter : filters) {
+                try {
+                    conditions.add(TableFilter.compile(filter, columns).getCriteriaObject());
+                } catch (RuntimeException e) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+                }
+            }
+        }
+
+        String collection = tableCollectionResolver.collectionFor(tableSchema);
+        // A dedicated collection holds only this table; in the shared one a delete can only be attributed
+        // to its table through the deleted record, which change streams provide as a pre-image
+        boolean dedicated = !TableCollectionResolver.SHARED_COLLECTION.equals(collection);
+        boolean deletes = ops.contains(OP_DELETE) && (dedicated || preImages);
+        if (preImages) {
+            enablePreImages(collection);
+        }
+
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change feed subscribers, try again later");
+        }
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+        try {
+            ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(collection)
+                    .watch(List.of(Aggregates.match(changeFilter(tableSchema, ops, deletes, dedicated, conditions))))
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(heartbeatSeconds, TimeUnit.SECONDS);
+            if (preImages) {
+                stream = stream.fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE);
+            }
+            if (resumeToken != null && !resumeToken.isBlank()) {
+                stream = stream.resumeAfter(new BsonDocument("_data", new BsonString(resumeToken)));
+            }
+            cursor = stream.cursor();
+        } catch (MongoException e) {
+            subscribers.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot open change feed: " + e.getMessage());
+        }
+
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(error -> open.set(false));
+
+        Map<String, Object> ready = new LinkedHashMap<>();
+        ready.put("table", tableSchema.getSchemaName());
+        ready.put("projectId", tableSchema.getProjectId());
+        ready.put("operations", deletes ? ops : ops.stream().filter(op -> !OP_DELETE.equals(op)).toList());
+        executor.execute(() -> {
+            try {
+                stream(cursor, emitter, open, ready);
+            } finally {
+                subscribers.decrementAndGet();
+            }
+        });
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void stream(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor, SseEmitter emitter,
+                        AtomicBoolean open, Map<String, Object> ready) {
+        String table = ready.get("projectId") + "/" + ready.get("table");
+        try (cursor) {
+            emitter.send(SseEmitter.event().name("ready").data(ready));
+            while (open.get() && !Thread.currentThread().isInterrupted()) {
+                // Waits up to the heartbeat interval; sending the heartbeat is what notices a client that went away
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                emitter.send(SseEmitter.event()
+                        .id(change.getResumeToken().getString("_data").getValue())
+                        .name(operationOf(change))
+                        .data(toEvent(change)));
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Change feed of '{}' closed: {}", table, e.getMessage());
+        } catch (MongoException e) {
+            // e.g. the resume token fell off the oplog; the client has to reload and subscribe again
+            log.warn("Change feed of '{}' failed: {}", table, e.getMessage());
+            try {
+                emitter.send(SseEmitter.event().name("error").data(Map.of("message", e.getMessage())));
+            } catch (IOException | IllegalStateException ignored) {
+                // client already gone
+            }
+            emitter.completeWithError(e);
+        }
+    }
+
+    // operationType / table scope / filter match of the change stream; updates cover replaces as well
+    private Document changeFilter(TableSchema tableSchema, Set<String> ops, boolean deletes, boolean dedicated,
+                                  List<Document> conditions) {
+        List<String> written = new ArrayList<>();
+        if (ops.contains(OP_INSERT)) {
+            written.add("insert");
+        }
+        if (ops.contains(OP_UPDATE)) {
+            written.add("update");
+            written.add("replace");
+        }
+
+        List<Document> branches = new ArrayList<>();
+        if (!written.isEmpty()) {
+            branches.add(scoped(new Document("operationType", new Document("$in", written)), tableSchema, FULL_DOCUMENT, conditions));
+        }
+        if (deletes) {
+            Document delete = new Document("operationType", "delete");
+            // Without pre-images the deleted record is unknown: deletes from a dedicated collection are all this
+            // table's and are delivered whatever the filters
+            branches.add(preImages ? scoped(delete, tableSchema, BEFORE_CHANGE, conditions) : delete);
+        }
+        if (branches.isEmpty()) {
+            // Only deletes were asked for and they cannot be attributed to this table
+            return new Document("operationType", "none");
+        }
+        return new Document("$or", branches);
+    }
+
+    private Document scoped(Document match, TableSchema tableSchema, String prefix, List<Document> conditions) {
+        List<Document> all = new ArrayList<>();
+        all.add(match);
+        all.add(new Document(prefix + "projectId", tableSchema.getProjectId())
+                .append(prefix + "schemaName", tableSchema.getSchemaName()));
+        for (Document condition : conditions) {
+            all.add((Document) prefixFields(condition, prefix));
+        }
+        return new Document("$and", all);
+    }
+
+    // Moves a record query onto the changed document: field names get the prefix, $and / $or / $nor are followed,
+    // operator values (which may hold element-relative names) are left alone
+    private Object prefixFields(Object value, String prefix) {
+        if (value instanceof Document document) {
+            Document prefixed = new Document();
+            document.forEach((key, nested) -> {
+                if (key.startsWith("$")) {
+                    prefixed.append(key, prefixFields(nested, prefix));
+                } else {
+                    prefixed.append(prefix + key, nested);
+                }
+            });
+            return prefixed;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(element -> prefixFields(element, prefix)).toList();
+        }
+        return value;
+    }
+
+    private String operationOf(ChangeStreamDocument<Document> change) {
+        return switch (change.getOperationType()) {
+            case INSERT -> OP_INSERT;
+            case DELETE -> OP_DELETE;
+            default -> OP_UPDATE;
+        };
+    }
+
+    private Map<String, Object> toEvent(ChangeStreamDocument<Document> change) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("op", operationOf(change));
+        event.put("id", change.getDocumentKey() != null ? idOf(change.getDocumentKey().get("_id")) : null);
+        if (change.getUpdateDescription() != null && change.getUpdateDescription().getUpdatedFields() != null) {
+            List<String> changed = new ArrayList<>();
+            change.getUpdateDescription().getUpdatedFields().keySet().forEach(field -> addColumn(changed, field));
+            if (change.getUpdateDescription().getRemovedFields() != null) {
+                change.getUpdateDescription().getRemovedFields().forEach(field -> addColumn(changed, field));
+            }
+            event.put("changedColumns", changed);
+        }
+        // Updates carry the record as it is now, which may already be gone again
+        Document document = change.getFullDocument() != null ? change.getFullDocument() : change.getFullDocumentBeforeChange();
+        if (document != null) {
+            event.put("record", TableRecords.toRecord(mongoTemplate.getConverter().read(TableData.class, document)));
+        }
+        return event;
+    }
+
+    private void addColumn(List<String> changed, String field) {
+        if (field.startsWith("data.")) {
+            String column = field.substring("data.".length()).split("\\.")[0];
+            if (!changed.contains(column)) {
+                changed.add(column);
+            }
+        }
+    }
+
+    private Object idOf(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    // Records keep their pre-image for the change stream so deletes can be matched to their table
+    private void enablePreImages(String collection) {
+        if (preImageCollections.contains(collection)) {
+            return;
+        }
+        try {
+            mongoTemplate.executeCommand(new Document("collMod", collection)
+                    .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+            preImageCollections.add(collection);
+        } catch (Exception e) {
+            log.warn("Could not enable pre-images on '{}': {}", collection, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import rinsanom.com.springtwodatasoure.entity.TableData;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+import rinsanom.com.springtwodatasoure.repository.mongo.TableCollectionResolver;
+import rinsanom.com.springtwodatasoure.service.TableExportService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TableExportServiceImpl implements TableExportService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final TableCollectionResolver tableCollectionResolver;
+
+    @Value("${app.tables.export-batch-size:1000}")
+    private int exportBatchSize;
+
+    @Value("${app.tables.export-flush-rows:500}")
+    private int exportFlushRows;
+
+    @Override
+    public boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equalsIgnoreCase(format) || FORMAT_CSV.equalsIgnoreCase(format);
+    }
+
+    @Override
+    public void exportTable(TableSchema tableSchema, String format, OutputStream out) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+
+        Query query = new Query(Criteria.where("schemaName").is(schemaName).and("projectId").is(projectId))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(exportBatchSize);
+
+        long rows = 0;
+        // The cursor is closed with the stream, also when the client disconnects mid-export
+        String collection = tableCollectionResolver.collectionFor(tableSchema);
+        try (Stream<TableData> records = mongoTemplate.stream(query, TableData.class, collection)) {
+            if (FORMAT_CSV.equalsIgnoreCase(format)) {
+                rows = writeCsv(tableSchema, records.iterator(), out);
+            } else {
+                rows = writeNdjson(records.iterator(), out);
+            }
+            log.info("Exported {} rows from table '{}' in project '{}' as {}", rows, schemaName, projectId, format);
+        } catch (IOException e) {
+            // Broken pipe / aborted request: nothing left to write to, just release the cursor
+            log.info("Export of table '{}' in project '{}' stopped: client disconnected ({})", schemaName, projectId, e.getMessage());
+        }
+    }
+
+    // A setting of 0 or less means "flush every row" rather than a division by zero mid-export
+    private int flushRows() {
+        return Math.max(1, exportFlushRows);
+    }
+
+    private long writeNdjson(Iterator<TableData> records, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        int flushRows = flushRows();
+        long rows = 0;
+        while (records.hasNext()) {
+            TableData record = records.next();
+            generator.writeStartObject();
+            if (record.getData() != null) {
+                for (Map.Entry<String, Object> entry : record.getData().entrySet()) {
+                    generator.writeObjectField(entry.getKey(), entry.getValue());
+                }
+            }
+            generator.writeStringField("id", record.getId());
+            generator.writeObjectField("createdAt", record.getCreatedAt());
+            generator.writeObjectField("updatedAt", record.getUpdatedAt());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+
+            if (++rows % flushRows == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+        return rows;
+    }
+
+    private long writeCsv(TableSchema tableSchema, Iterator<TableData> records, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        List<String> columns = tableSchema.getSchema() != null
+                ? new ArrayList<>(tableSchema.getSchema().keySet())
+                : new ArrayList<>();
+
+        writer.write("id");
+        for (String column : columns) {
+            writer.write(',');
+            writer.write(escapeCsv(column));
+        }
+        writer.write(",createdAt,updatedAt\n");
+
+        int flushRows = flushRows();
+        long rows = 0;
+        while (records.hasNext()) {
+            TableData record = records.next();
+            Map<String, Object> data = record.getData();
+
+            writer.write(escapeCsv(record.getId()));
+            for (String column : columns) {
+                writer.write(',');
+                writer.write(escapeCsv(data != null ? data.get(column) : null));
+            }
+            writer.write(',');
+            writer.write(escapeCsv(record.getCreatedAt()));
+            writer.write(',');
+            writer.write(escapeCsv(record.getUpdatedAt()));
+            writer.write('\n');
+
+            if (++rows % flushRows == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private String escapeCsv(Object value) throws IOException {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Map || value instanceof Collection
+                ? objectMapper.writeValueAsString(value)
+                : value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
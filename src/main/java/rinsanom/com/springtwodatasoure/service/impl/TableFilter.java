@@ -0,0 +1,334 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles a filter expression on a table's columns into MongoDB criteria on {@code data.<column>}.
+ * <p>
+ * Grammar: {@code and(expr, ...)}, {@code or(expr, ...)} and comparisons
+ * {@code eq|ne|gt|gte|lt|lte(column, value)}, {@code in(column, value, ...)},
+ * {@code prefix(column, value)}, {@code like(column, pattern)} ({@code %} and {@code _} wildcards),
+ * {@code exists(column, true|false)}. POINT and GEOMETRY columns support
+ * {@code near(column, lng, lat, maxMeters)}, {@code within(column, box, minLng, minLat, maxLng, maxLat)} and
+ * {@code within(column, polygon, lng, lat, lng, lat, lng, lat, ...)}. Values are bare tokens or single-quoted strings
+ * ({@code ''} for a quote); the bare token {@code null} matches missing or null values.
+ * Values are converted to the declared column type, e.g. {@code gte(price, 10)}.
+ */
+final class TableFilter {
+
+    // Upper bound on comparisons per expression, so a single request cannot build an arbitrarily large query
+    private static final int MAX_CONDITIONS = 50;
+
+    // Mean earth radius used by MongoDB to turn $centerSphere radians into meters
+    private static final double EARTH_RADIUS_METERS = 6_378_100;
+
+    private final String input;
+    private final Map<String, ColumnDefinition> columns;
+    private int position;
+    private int conditions;
+
+    private TableFilter(String input, Map<String, ColumnDefinition> columns) {
+        this.input = input;
+        this.columns = columns;
+    }
+
+    static Criteria compile(String expression, Map<String, ColumnDefinition> columns) {
+        if (expression == null || expression.isBlank()) {
+            throw new RuntimeException("Filter must not be empty");
+        }
+        TableFilter parser = new TableFilter(expression, columns);
+        Criteria criteria = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.position < expression.length()) {
+            throw parser.error("Unexpected '" + expression.charAt(parser.position) + "'");
+        }
+        return criteria;
+    }
+
+    // A single request parameter converted to the column's type, with the same rules as filter values
+    static Object convertValue(ColumnDefinition column, String text) {
+        return new TableFilter(text, Map.of()).convert(column, new Value(text, true));
+    }
+
+    private Criteria parseExpression() {
+        String operator = parseToken().toLowerCase(Locale.ROOT);
+        expect('(');
+
+        if ("and".equals(operator) || "or".equals(operator)) {
+            List<Criteria> operands = new ArrayList<>();
+            do {
+                operands.add(parseExpression());
+            } while (consume(','));
+            expect(')');
+            Criteria[] array = operands.toArray(new Criteria[0]);
+            return "and".equals(operator) ? new Criteria().andOperator(array) : new Criteria().orOperator(array);
+        }
+
+        if (++conditions > MAX_CONDITIONS) {
+            throw error("Filter has more than " + MAX_CONDITIONS + " conditions");
+        }
+        String columnName = parseToken();
+        ColumnDefinition column = columns.get(columnName);
+        if (column == null) {
+            throw error("Unknown column '" + columnName + "'");
+        }
+        List<Value> values = new ArrayList<>();
+        while (consume(',')) {
+            values.add(parseValue());
+        }
+        expect(')');
+        return comparison(operator, column, values);
+    }
+
+    private Criteria comparison(String operator, ColumnDefinition column, List<Value> values) {
+        String path = "data." + column.name();
+        boolean geoOperator = "near".equals(operator) || "within".equals(operator);
+        if (column.isGeo() != geoOperator && !"exists".equals(operator)) {
+            throw error(column.isGeo()
+                    ? operator + "() cannot be used on " + column.baseType() + " column '" + column.name() + "', use near() or within()"
+                    : operator + "() can only be used on POINT and GEOMETRY columns, '" + column.name() + "' is " + column.baseType());
+        }
+        switch (operator) {
+            case "eq":
+                return Criteria.where(path).is(convert(column, single(operator, values)));
+            case "ne":
+                return Criteria.where(path).ne(convert(column, single(operator, values)));
+            case "gt":
+                return Criteria.where(path).gt(orderable(operator, column, single(operator, values)));
+            case "gte":
+                return Criteria.where(path).gte(orderable(operator, column, single(operator, values)));
+            case "lt":
+                return Criteria.where(path).lt(orderable(operator, column, single(operator, values)));
+            case "lte":
+                return Criteria.where(path).lte(orderable(operator, column, single(operator, values)));
+            case "in":
+                if (values.isEmpty()) {
+                    throw error("in(" + column.name() + ", ...) needs at least one value");
+                }
+                return Criteria.where(path).in(values.stream().map(value -> convert(column, value)).toList());
+            case "prefix":
+                // An anchored literal prefix can use the column's index
+                return Criteria.where(path).regex("^" + escapeRegex(textual(operator, column, single(operator, values))));
+            case "like":
+                return Criteria.where(path).regex(likeToRegex(textual(operator, column, single(operator, values))));
+            case "exists":
+                String flag = single(operator, values).text().toLowerCase(Locale.ROOT);
+                if (!"true".equals(flag) && !"false".equals(flag)) {
+                    throw error("exists(" + column.name() + ", ...) expects true or false");
+                }
+                return Criteria.where(path).exists(Boolean.parseBoolean(flag));
+            case "near":
+                // $geoWithin over a sphere rather than $near: it uses the 2dsphere index without imposing
+                // a sort, so it combines with or(), counts and paging; distance ordering is TableService#findNear
+                if (values.size() != 3) {
+                    throw error("near(" + column.name() + ", lng, lat, maxMeters) expects a position and a distance");
+                }
+                double maxMeters = coordinate(values.get(2));
+                if (maxMeters <= 0) {
+                    throw error("near() distance must be positive");
+                }
+                return Criteria.where(path).withinSphere(
+                        new Circle(position(values.get(0), values.get(1)), maxMeters / EARTH_RADIUS_METERS));
+            case "within":
+                return Criteria.where(path).within(area(column, values));
+            default:
+                throw error("Unknown operator '" + operator + "'");
+        }
+    }
+
+    private Value single(String operator, List<Value> values) {
+        if (values.size() != 1) {
+            throw error(operator + "() expects a column and exactly one value");
+        }
+        return values.get(0);
+    }
+
+    private Object orderable(String operator, ColumnDefinition column, Value value) {
+        if (column.kind() == ColumnDefinition.Kind.BOOLEAN || value.isNull()) {
+            throw error(operator + "() cannot be used on " + column.baseType() + " column '" + column.name() + "'");
+        }
+        return convert(column, value);
+    }
+
+    private String textual(String operator, ColumnDefinition column, Value value) {
+        if (column.kind() != ColumnDefinition.Kind.STRING && column.kind() != ColumnDefinition.Kind.DATE) {
+            throw error(operator + "() can only be used on text and date columns, '" + column.name() + "' is " + column.baseType());
+        }
+        if (value.isNull()) {
+            throw error(operator + "() needs a value");
+        }
+        return value.text();
+    }
+
+    // Values are stored as they arrive in JSON: numbers and booleans natively, dates as ISO strings
+    private Object convert(ColumnDefinition column, Value value) {
+        if (value.isNull()) {
+            return null;
+        }
+        String text = value.text();
+        try {
+            switch (column.kind()) {
+                case INTEGER:
+                    return Long.parseLong(text);
+                case NUMBER:
+                    return Double.parseDouble(text);
+                case BOOLEAN:
+                    if (!"true".equalsIgnoreCase(text) && !"false".equalsIgnoreCase(text)) {
+                        throw new IllegalArgumentException();
+                    }
+                    return Boolean.parseBoolean(text);
+                case DATE:
+                    if (!ColumnDefinition.isIsoDate(text)) {
+                        throw new IllegalArgumentException();
+                    }
+                    return text;
+                case ARRAY:
+                    // Comparisons on an array column match its elements
+                    return column.elementKind() != null
+                            ? convert(column.elementDefinition(), value)
+                            : text;
+                default:
+                    return text;
+            }
+        } catch (IllegalArgumentException e) {
+            throw error("'" + text + "' is not a valid " + column.baseType() + " value for column '" + column.name() + "'");
+        }
+    }
+
+    private GeoJsonPolygon area(ColumnDefinition column, List<Value> values) {
+        String shape = values.isEmpty() ? "" : values.get(0).text().toLowerCase(Locale.ROOT);
+        List<Value> coordinates = values.subList(Math.min(1, values.size()), values.size());
+        if ("box".equals(shape) && coordinates.size() == 4) {
+            Point min = position(coordinates.get(0), coordinates.get(1));
+            Point max = position(coordinates.get(2), coordinates.get(3));
+            return new GeoJsonPolygon(min, new Point(max.getX(), min.getY()), max, new Point(min.getX(), max.getY()), min);
+        }
+        if ("polygon".equals(shape) && coordinates.size() >= 6 && coordinates.size() % 2 == 0) {
+            List<Point> ring = new ArrayList<>();
+            for (int i = 0; i < coordinates.size(); i += 2) {
+                ring.add(position(coordinates.get(i), coordinates.get(i + 1)));
+            }
+            if (!ring.get(0).equals(ring.get(ring.size() - 1))) {
+                ring.add(ring.get(0));
+            }
+            if (ring.size() < 4) {
+                throw error("within(" + column.name() + ", polygon, ...) needs at least three distinct points");
+            }
+            return new GeoJsonPolygon(ring);
+        }
+        throw error("within(" + column.name() + ", ...) expects 'box, minLng, minLat, maxLng, maxLat'"
+                + " or 'polygon' followed by at least three lng, lat pairs");
+    }
+
+    private Point position(Value longitude, Value latitude) {
+        double x = coordinate(longitude);
+        double y = coordinate(latitude);
+        if (Math.abs(x) > 180 || Math.abs(y) > 90) {
+            throw error("(" + longitude.text() + ", " + latitude.text() + ") is not a valid longitude, latitude");
+        }
+        return new Point(x, y);
+    }
+
+    private double coordinate(Value value) {
+        try {
+            return Double.parseDouble(value.text());
+        } catch (NumberFormatException e) {
+            throw error("'" + value.text() + "' is not a number");
+        }
+    }
+
+    private static String likeToRegex(String pattern) {
+        StringBuilder regex = new StringBuilder("^");
+        for (char c : pattern.toCharArray()) {
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(escapeRegex(String.valueOf(c)));
+            }
+        }
+        return regex.append('$').toString();
+    }
+
+    private static String escapeRegex(String text) {
+        return text.replaceAll("[\\\\^$.|?*+()\\[\\]{}]", "\\\\$0");
+    }
+
+    private record Value(String text, boolean quoted) {
+        boolean isNull() {
+            return !quoted && "null".equals(text);
+        }
+    }
+
+    private Value parseValue() {
+        skipWhitespace();
+        if (position < input.length() && input.charAt(position) == '\'') {
+            StringBuilder text = new StringBuilder();
+            position++;
+            while (true) {
+                if (position >= input.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = input.charAt(position++);
+                if (c == '\'') {
+                    if (position < input.length() && input.charAt(position) == '\'') {
+                        text.append('\'');
+                        position++;
+                    } else {
+                        return new Value(text.toString(), true);
+                    }
+                } else {
+                    text.append(c);
+                }
+            }
+        }
+        return new Value(parseToken(), false);
+    }
+
+    private String parseToken() {
+        skipWhitespace();
+        int start = position;
+        while (position < input.length() && ",()'".indexOf(input.charAt(position)) < 0) {
+            position++;
+        }
+        String token = input.substring(start, position).trim();
+        if (token.isEmpty()) {
+            throw error("Expected a name or value");
+        }
+        return token;
+    }
+
+    private boolean consume(char expected) {
+        skipWhitespace();
+        if (position < input.length() && input.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected) {
+        if (!consume(expected)) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("Invalid filter at position " + position + ": " + message);
+    }
+}
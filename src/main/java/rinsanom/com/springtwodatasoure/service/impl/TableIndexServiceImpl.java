@@ -0,0 +1,495 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+import rinsanom.com.springtwodatasoure.repository.mongo.TableCollectionResolver;
+import rinsanom.com.springtwodatasoure.repository.mongo.TableSchemaRepository;
+import rinsanom.com.springtwodatasoure.service.TableIndexService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TableIndexServiceImpl implements TableIndexService {
+
+    // Per-table index names look like "tbl#<projectId>#<schemaName>#<column>"
+    private static final String TABLE_INDEX_PREFIX = "tbl#";
+
+    // Suffix of the natural key index; column names cannot start with '$'
+    private static final String NATURAL_KEY_SUFFIX = "$naturalKey";
+    private static final String TTL_SUFFIX = "$ttl";
+
+    // BSON types a UNIQUE column value is indexed under; null and missing values stay outside the unique index
+    private static final List<String> UNIQUE_VALUE_TYPES =
+            List.of("string", "int", "long", "double", "decimal", "bool", "date", "objectId");
+
+    // Duplicate values named when a unique index cannot be built
+    private static final int DUPLICATE_SAMPLE_SIZE = 5;
+
+    // Indexes on the shared collection that serve one column path for every table stored there
+    private static final String COLUMN_PATH_INDEX_PREFIX = "col#";
+    private static final String GEO_PATH_INDEX_PREFIX = "geo#";
+
+    // Index named in a MongoDB duplicate key (E11000) error message
+    private static final Pattern DUPLICATE_KEY_INDEX = Pattern.compile("index: (" + Pattern.quote(TABLE_INDEX_PREFIX) + "\\S+)");
+
+    private final MongoTemplate mongoTemplate;
+    private final TableSchemaRepository tableSchemaRepository;
+    private final TableCollectionResolver tableCollectionResolver;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIndexes() {
+        try {
+            ensureBaseIndexes(TableCollectionResolver.SHARED_COLLECTION);
+            dropSharedTextIndex();
+            List<TableSchema> sharedTables = new ArrayList<>();
+            for (TableSchema tableSchema : tableSchemaRepository.findAll()) {
+                if (TableCollectionResolver.SHARED_COLLECTION.equals(tableCollectionResolver.collectionFor(tableSchema))) {
+                    sharedTables.add(tableSchema);
+                }
+                try {
+                    syncTableIndexes(tableSchema);
+                } catch (Exception e) {
+                    log.warn("Could not sync indexes of table '{}' in project '{}': {}",
+                            tableSchema.getSchemaName(), tableSchema.getProjectId(), e.getMessage());
+                }
+            }
+            // Column path indexes are only added on table changes; the ones no table needs any more go here
+            dropUnusedColumnPathIndexes(sharedTables);
+        } catch (Exception e) {
+            // MongoDB is optional at startup (see management.health.mongo); indexes are retried on the next table change
+            log.warn("Could not initialize indexes on record collections: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void ensureBaseIndexes(String collection) {
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        indexOps.ensureIndex(new Index()
+                .on("projectId", Sort.Direction.ASC)
+                .on("schemaName", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("project_schema_id"));
+        indexOps.ensureIndex(new Index()
+                .on("projectId", Sort.Direction.ASC)
+                .on("schemaName", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.ASC)
+                .named("project_schema_createdAt"));
+        // Reads that are not scoped to a project (GET /api/tables/{schemaName} without projectId)
+        indexOps.ensureIndex(new Index()
+                .on("schemaName", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("schema_id"));
+        log.info("Base indexes on {} are in place", collection);
+    }
+
+    // MongoDB 6.3+ creates the meta/time index of a time-series collection itself; reads by time alone need their own
+    private void ensureTimeSeriesIndexes(String collection) {
+        try {
+            mongoTemplate.indexOps(collection).ensureIndex(new Index()
+                    .on(TableSchema.TimeSeries.TIME_FIELD, Sort.Direction.ASC)
+                    .named("time_series_time"));
+        } catch (Exception e) {
+            log.warn("Could not create time index on {}: {}", collection, e.getMessage());
+        }
+    }
+
+    @Override
+    public void syncTableIndexes(TableSchema tableSchema) {
+        syncColumnIndexes(tableSchema);
+        if (tableSchema.getTimeSeries() != null) {
+            return;
+        }
+        String collection = tableCollectionResolver.collectionFor(tableSchema);
+        if (TableCollectionResolver.SHARED_COLLECTION.equals(collection)) {
+            return;
+        }
+        try {
+            syncTextIndex(collection, tableSchema);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not update text index on " + collection + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Rebuilding the one text index of the shared collection would block writes of every tenant on it, so
+    // SEARCHABLE columns are only indexed in dedicated collections; an index left from earlier versions is dropped
+    private void dropSharedTextIndex() {
+        IndexOperations indexOps = mongoTemplate.indexOps(TableCollectionResolver.SHARED_COLLECTION);
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.getName().equals(TEXT_INDEX_NAME)) {
+                indexOps.dropIndex(TEXT_INDEX_NAME);
+                log.info("Dropped text index on {}", TableCollectionResolver.SHARED_COLLECTION);
+            }
+        }
+    }
+
+    private void syncColumnIndexes(TableSchema tableSchema) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String prefix = indexPrefix(schemaName, projectId);
+        String collection = tableCollectionResolver.collectionFor(tableSchema);
+        // A time-series collection holds a single table, so its indexes need no table filter
+        boolean timeSeries = tableSchema.getTimeSeries() != null;
+        boolean shared = TableCollectionResolver.SHARED_COLLECTION.equals(collection);
+        if (timeSeries) {
+            ensureTimeSeriesIndexes(collection);
+        } else if (!shared) {
+            ensureBaseIndexes(collection);
+        }
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        PartialIndexFilter tableFilter = PartialIndexFilter.of(
+                Criteria.where("projectId").is(projectId).and("schemaName").is(schemaName));
+
+        Set<String> wanted = indexedColumns(tableSchema);
+        Set<String> unique = uniqueColumns(tableSchema);
+        Set<String> geoColumns = geoColumns(tableSchema);
+
+        // In the shared collection a table only has indexes of its own for UNIQUE columns; the others share
+        // one index per column path with every table there (see ensureColumnPathIndex)
+        Set<String> ownColumns = shared ? unique : wanted;
+        Set<String> ownGeoColumns = shared ? Set.of() : geoColumns;
+
+        // Drop indexes for columns that no longer need one, or whose column switched between geo and non-geo
+        // or gained / lost its UNIQUE constraint; unique indexes from before the $type filter are rebuilt too
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            String suffix = info.getName().startsWith(prefix) ? info.getName().substring(prefix.length()) : null;
+            if (suffix == null || suffix.equals(NATURAL_KEY_SUFFIX) || suffix.equals(TTL_SUFFIX)) {
+                continue;
+            }
+            boolean geoIndex = info.getIndexFields().stream().anyMatch(IndexField::isGeo);
+            boolean oldUniqueFilter = info.isUnique()
+                    && (info.getPartialFilterExpression() == null || !info.getPartialFilterExpression().contains("$type"));
+            boolean stale = geoIndex
+                    ? !ownGeoColumns.contains(suffix)
+                    : !ownColumns.contains(suffix) || info.isUnique() != unique.contains(suffix) || oldUniqueFilter;
+            if (stale) {
+                indexOps.dropIndex(info.getName());
+                log.info("Dropped index '{}'", info.getName());
+            }
+        }
+
+        for (String column : wanted) {
+            if (shared && !unique.contains(column)) {
+                ensureColumnPathIndex(indexOps, column, false);
+                continue;
+            }
+            Index index = new Index()
+                    .on("data." + column, Sort.Direction.ASC)
+                    .named(prefix + column);
+            if (unique.contains(column)) {
+                ensureUniqueIndex(indexOps, collection, tableSchema, column, index);
+                continue;
+            }
+            try {
+                indexOps.ensureIndex(timeSeries ? index : index.partial(tableFilter));
+            } catch (Exception e) {
+                throw indexError(column, e);
+            }
+        }
+
+        for (String column : geoColumns) {
+            if (shared) {
+                ensureColumnPathIndex(indexOps, column, true);
+                continue;
+            }
+            try {
+                GeospatialIndex index = new GeospatialIndex("data." + column)
+                        .typed(GeoSpatialIndexType.GEO_2DSPHERE)
+                        .named(prefix + column);
+                indexOps.ensureIndex(timeSeries ? index : index.partial(tableFilter));
+            } catch (Exception e) {
+                throw indexError(column, e);
+            }
+        }
+
+        syncNaturalKeyIndex(tableSchema);
+        syncTtlIndex(tableSchema);
+    }
+
+    // Fails with the clashing values when existing records already repeat a value, instead of falling back to a
+    // non-unique index that would leave UNIQUE unenforced (and be rebuilt on every sync)
+    private void ensureUniqueIndex(IndexOperations indexOps, String collection, TableSchema tableSchema, String column,
+                                   Index index) {
+        try {
+            indexOps.ensureIndex(index.unique().partial(PartialIndexFilter.of(uniqueFilter(tableSchema, column))));
+        } catch (Exception e) {
+            List<Object> duplicates = duplicateValues(collection, tableSchema, column);
+            if (duplicates.isEmpty()) {
+                throw indexError(column, e);
+            }
+            throw new RuntimeException("Column '" + column + "' is UNIQUE but existing records share the values "
+                    + duplicates, e);
+        }
+    }
+
+    // Only records holding an actual value are indexed: missing columns and explicit nulls never collide
+    private Document uniqueFilter(TableSchema tableSchema, String column) {
+        return new Document("projectId", tableSchema.getProjectId())
+                .append("schemaName", tableSchema.getSchemaName())
+                .append("data." + column, new Document("$type", UNIQUE_VALUE_TYPES));
+    }
+
+    private List<Object> duplicateValues(String collection, TableSchema tableSchema, String column) {
+        List<Document> pipeline = List.of(
+                new Document("$match", uniqueFilter(tableSchema, column)),
+                new Document("$group", new Document("_id", "$data." + column).append("count", new Document("$sum", 1))),
+                new Document("$match", new Document("count", new Document("$gt", 1))),
+                new Document("$limit", DUPLICATE_SAMPLE_SIZE));
+        List<Object> values = new ArrayList<>();
+        mongoTemplate.getCollection(collection).aggregate(pipeline).allowDiskUse(true)
+                .forEach(document -> values.add(document.get("_id")));
+        return values;
+    }
+
+    // One (projectId, schemaName, data.<column>) index per column path, shared by every table of the shared collection
+    // that indexes a column of that name. Per-table partial indexes would grow with the number of tables and run into
+    // MongoDB's limit of 64 indexes per collection; column names repeat across tenants, so these stay few.
+    private void ensureColumnPathIndex(IndexOperations indexOps, String column, boolean geo) {
+        Document keys = new Document("projectId", 1)
+                .append("schemaName", 1)
+                .append("data." + column, geo ? "2dsphere" : 1);
+        try {
+            indexOps.ensureIndex(new CompoundIndexDefinition(keys)
+                    .named((geo ? GEO_PATH_INDEX_PREFIX : COLUMN_PATH_INDEX_PREFIX) + column));
+        } catch (Exception e) {
+            throw indexError(column, e);
+        }
+    }
+
+    // Drops the column path indexes of the shared collection that no table stored there needs any more
+    private void dropUnusedColumnPathIndexes(List<TableSchema> sharedTables) {
+        Set<String> needed = new LinkedHashSet<>();
+        for (TableSchema tableSchema : sharedTables) {
+            Set<String> unique = uniqueColumns(tableSchema);
+            indexedColumns(tableSchema).stream()
+                    .filter(column -> !unique.contains(column))
+                    .forEach(column -> needed.add(COLUMN_PATH_INDEX_PREFIX + column));
+            geoColumns(tableSchema).forEach(column -> needed.add(GEO_PATH_INDEX_PREFIX + column));
+        }
+        IndexOperations indexOps = mongoTemplate.indexOps(TableCollectionResolver.SHARED_COLLECTION);
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            boolean pathIndex = info.getName().startsWith(COLUMN_PATH_INDEX_PREFIX) || info.getName().startsWith(GEO_PATH_INDEX_PREFIX);
+            if (pathIndex && !needed.contains(info.getName())) {
+                indexOps.dropIndex(info.getName());
+                log.info("Dropped unused index '{}' on {}", info.getName(), TableCollectionResolver.SHARED_COLLECTION);
+            }
+        }
+    }
+
+    private RuntimeException indexError(String column, Exception cause) {
+        return new RuntimeException("Could not create index on column '" + column + "': " + cause.getMessage(), cause);
+    }
+
+    // Rebuilds the text index of a table's dedicated collection when its searchable columns have changed;
+    // the collection holds this table only, so no other schema needs to be read
+    private void syncTextIndex(String collection, TableSchema tableSchema) {
+        Set<String> wanted = new TreeSet<>(searchableColumns(tableSchema));
+
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.getName().equals(TEXT_INDEX_NAME)) {
+                Set<String> current = info.getIndexFields().stream()
+                        .filter(IndexField::isText)
+                        .map(IndexField::getKey)
+                        .collect(Collectors.toCollection(TreeSet::new));
+                if (current.equals(wanted)) {
+                    return;
+                }
+                indexOps.dropIndex(TEXT_INDEX_NAME);
+            }
+        }
+        if (wanted.isEmpty()) {
+            return;
+        }
+
+        Document keys = new Document("projectId", 1).append("schemaName", 1);
+        wanted.forEach(path -> keys.append(path, "text"));
+        indexOps.ensureIndex(new CompoundIndexDefinition(keys).named(TEXT_INDEX_NAME));
+        log.info("Text index on {} now covers {}", collection, wanted);
+    }
+
+    private Set<String> searchableColumns(TableSchema tableSchema) {
+        return ColumnDefinition.parseSchema(tableSchema.getSchema()).values().stream()
+                .filter(ColumnDefinition::searchable)
+                .map(column -> "data." + column.name())
+                .collect(Collectors.toSet());
+    }
+
+    // UNIQUE / PRIMARY KEY columns, enforced by a unique index; time-series collections cannot have one
+    private Set<String> uniqueColumns(TableSchema tableSchema) {
+        if (tableSchema.getTimeSeries() != null) {
+            return Set.of();
+        }
+        return ColumnDefinition.parseSchema(tableSchema.getSchema()).values().stream()
+                .filter(column -> column.unique() && !column.isGeo())
+                .map(ColumnDefinition::name)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public String uniqueColumnOf(String duplicateKeyMessage) {
+        Matcher matcher = DUPLICATE_KEY_INDEX.matcher(duplicateKeyMessage != null ? duplicateKeyMessage : "");
+        if (!matcher.find()) {
+            return null;
+        }
+        String suffix = matcher.group(1).substring(matcher.group(1).lastIndexOf('#') + 1);
+        return suffix.startsWith("$") ? null : suffix;
+    }
+
+    private Set<String> geoColumns(TableSchema tableSchema) {
+        return ColumnDefinition.parseSchema(tableSchema.getSchema()).values().stream()
+                .filter(ColumnDefinition::isGeo)
+                .map(ColumnDefinition::name)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public void syncTtlIndex(TableSchema tableSchema) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String collection = tableCollectionResolver.collectionFor(tableSchema);
+        TableSchema.Ttl ttl = tableSchema.getTtl();
+
+        // Time-series collections expire whole buckets by their time field, configured on the collection
+        if (tableSchema.getTimeSeries() != null) {
+            if (ttl != null && ttl.getExpiresAtField() != null) {
+                throw new RuntimeException("Time-series tables only support a fixed expireAfterSeconds");
+            }
+            mongoTemplate.executeCommand(new Document("collMod", collection)
+                    .append("expireAfterSeconds", ttl != null ? ttl.getExpireAfterSeconds() : "off"));
+            return;
+        }
+
+        String field = null;
+        long seconds = 0;
+        if (ttl != null && ttl.getExpiresAtField() != null) {
+            field = TableSchema.Ttl.EXPIRES_AT_FIELD;
+        } else if (ttl != null && ttl.getExpireAfterSeconds() != null) {
+            field = "createdAt";
+            seconds = ttl.getExpireAfterSeconds();
+        }
+
+        String name = indexPrefix(schemaName, projectId) + TTL_SUFFIX;
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (!info.getName().equals(name)) {
+                continue;
+            }
+            boolean sameField = field != null && info.isIndexForFields(List.of(field));
+            if (sameField && info.getExpireAfter().map(Duration::getSeconds).orElse(-1L) == seconds) {
+                return;
+            }
+            if (sameField) {
+                // Only the lifetime changed: collMod updates it without rebuilding the index
+                mongoTemplate.executeCommand(new Document("collMod", collection)
+                        .append("index", new Document("name", name).append("expireAfterSeconds", seconds)));
+                log.info("TTL of table '{}' in project '{}' changed to {}s", schemaName, projectId, seconds);
+                return;
+            }
+            indexOps.dropIndex(name);
+            log.info("Dropped TTL index '{}'", name);
+        }
+        if (field != null) {
+            indexOps.ensureIndex(new Index()
+                    .on(field, Sort.Direction.ASC)
+                    .named(name)
+                    .expire(seconds)
+                    .partial(PartialIndexFilter.of(
+                            Criteria.where("projectId").is(projectId).and("schemaName").is(schemaName))));
+            log.info("Records of table '{}' in project '{}' expire on {} after {}s", schemaName, projectId, field, seconds);
+        }
+    }
+
+    @Override
+    public void syncNaturalKeyIndex(TableSchema tableSchema) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String name = indexPrefix(schemaName, projectId) + NATURAL_KEY_SUFFIX;
+        IndexOperations indexOps = mongoTemplate.indexOps(tableCollectionResolver.collectionFor(tableSchema));
+        List<String> naturalKey = tableSchema.getNaturalKey() != null ? tableSchema.getNaturalKey() : List.of();
+
+        Index index = new Index().named(name).unique();
+        // Records without the key columns stay outside the index instead of colliding on null
+        Criteria filter = Criteria.where("projectId").is(projectId).and("schemaName").is(schemaName);
+        for (String column : naturalKey) {
+            index.on("data." + column, Sort.Direction.ASC);
+            filter.and("data." + column).exists(true);
+        }
+        index.partial(PartialIndexFilter.of(filter));
+
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.getName().equals(name)) {
+                List<String> current = info.getIndexFields().stream().map(IndexField::getKey).toList();
+                List<String> wanted = naturalKey.stream().map(column -> "data." + column).toList();
+                if (current.equals(wanted)) {
+                    return;
+                }
+                indexOps.dropIndex(name);
+                log.info("Dropped natural key index '{}'", name);
+            }
+        }
+        if (!naturalKey.isEmpty()) {
+            indexOps.ensureIndex(index);
+            log.info("Natural key {} of table '{}' in project '{}' is indexed", naturalKey, schemaName, projectId);
+        }
+    }
+
+    @Override
+    public void dropTableIndexes(TableSchema tableSchema) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String prefix = indexPrefix(schemaName, projectId);
+        IndexOperations indexOps = mongoTemplate.indexOps(tableCollectionResolver.collectionFor(tableSchema));
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.getName().startsWith(prefix)) {
+                indexOps.dropIndex(info.getName());
+            }
+        }
+        log.info("Dropped indexes of table '{}' in project '{}'", schemaName, projectId);
+    }
+
+    // Columns declared UNIQUE / INDEX, plus relationship foreign keys
+    @Override
+    public Set<String> indexedColumns(TableSchema tableSchema) {
+        Set<String> columns = new LinkedHashSet<>();
+        ColumnDefinition.parseSchema(tableSchema.getSchema()).values().stream()
+                .filter(column -> !column.isGeo() && (column.unique() || column.indexed()))
+                .forEach(column -> columns.add(column.name()));
+        if (tableSchema.getRelationships() != null) {
+            tableSchema.getRelationships().stream()
+                    .map(TableSchema.TableRelationship::getForeignKeyColumn)
+                    .filter(column -> column != null && !column.isEmpty())
+                    .forEach(columns::add);
+        }
+        return columns;
+    }
+
+    private String indexPrefix(String schemaName, String projectId) {
+        return TABLE_INDEX_PREFIX + projectId + "#" + schemaName + "#";
+    }
+}
@@ -0,0 +1,44 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import rinsanom.com.springtwodatasoure.entity.TableData;
+import rinsanom.com.springtwodatasoure.service.TableService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The API shape of a stored record: its columns next to id, {@link TableService#VERSION_FIELD} and timestamps.
+ * Shared by the table endpoints and the change feed so both return records the same way.
+ */
+final class TableRecords {
+
+    private TableRecords() {
+    }
+
+    static Map<String, Object> toRecord(TableData tableData) {
+        Map<String, Object> record = tableData.getData() != null ? new HashMap<>(tableData.getData()) : new HashMap<>();
+        record.put("id", tableData.getId());
+        record.put(TableService.VERSION_FIELD, tableData.currentVersion());
+        record.put("createdAt", tableData.getCreatedAt());
+        record.put("updatedAt", tableData.getUpdatedAt());
+        return record;
+    }
+
+    // Only the requested columns have been loaded; id and version are always returned
+    static Map<String, Object> toRecord(TableData tableData, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return toRecord(tableData);
+        }
+        Map<String, Object> record = tableData.getData() != null ? new HashMap<>(tableData.getData()) : new HashMap<>();
+        record.put("id", tableData.getId());
+        record.put(TableService.VERSION_FIELD, tableData.currentVersion());
+        if (fields.contains("createdAt")) {
+            record.put("createdAt", tableData.getCreatedAt());
+        }
+        if (fields.contains("updatedAt")) {
+            record.put("updatedAt", tableData.getUpdatedAt());
+        }
+        return record;
+    }
+}
@@ -2,36 +2,145 @@ package rinsanom.com.springtwodatasoure.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.geo.CustomMetric;
+import org.springframework.data.geo.Metric;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import rinsanom.com.springtwodatasoure.dto.AggregateRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.CreateTableRequestDTO;
 import rinsanom.com.springtwodatasoure.dto.CreateTableWithRelationshipsDTO;
+import rinsanom.com.springtwodatasoure.dto.RecordOperationsRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.TransactionRequestDTO;
+import rinsanom.com.springtwodatasoure.dto.WebhookRequestDTO;
 import rinsanom.com.springtwodatasoure.entity.TableSchema;
 import rinsanom.com.springtwodatasoure.entity.TableData;
 import rinsanom.com.springtwodatasoure.entity.Projects;
 import rinsanom.com.springtwodatasoure.repository.mongo.TableSchemaRepository;
-import rinsanom.com.springtwodatasoure.repository.mongo.TableDataRepository;
+import rinsanom.com.springtwodatasoure.repository.mongo.TableCollectionResolver;
 import rinsanom.com.springtwodatasoure.repository.mongo.ProjectRepository;
 import rinsanom.com.springtwodatasoure.repository.postgrest.UserRepository;
 import rinsanom.com.springtwodatasoure.service.DynamicEndpointService;
 import rinsanom.com.springtwodatasoure.service.AuthScaffoldService;
+import rinsanom.com.springtwodatasoure.service.TableIndexService;
 import rinsanom.com.springtwodatasoure.service.TableService;
+import rinsanom.com.springtwodatasoure.service.TableStorageMigrationService;
+import rinsanom.com.springtwodatasoure.service.WebhookService;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+import static rinsanom.com.springtwodatasoure.service.impl.TableRecords.toRecord;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TableServiceImpl implements TableService {
     private final TableSchemaRepository tableSchemaRepository;
-    private final TableDataRepository tableDataRepository;
+    private final TableCollectionResolver tableCollectionResolver;
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
     private final DynamicEndpointService dynamicEndpointService;
     private final AuthScaffoldService authScaffoldService;
+    private final MongoTemplate mongoTemplate;
+    private final TableIndexService tableIndexService;
+    private final TableStorageMigrationService tableStorageMigrationService;
+    private final WebhookService webhookService;
+
+    // Relevance of a search hit, returned next to the record's columns
+    private static final String SEARCH_SCORE_FIELD = "_score";
+
+    // Distance of a near hit from the requested position, in meters
+    private static final String DISTANCE_FIELD = "_distance";
+
+    // Distances of GeoJSON $geoNear queries are in meters; Metrics only offers kilometers and miles
+    private static final Metric METERS = new CustomMetric(Metrics.KILOMETERS.getMultiplier() * 1000, "m");
+
+    private static final int DUPLICATE_KEY_CODE = 11000;
+
+    private static final Set<String> AGGREGATE_OPS = Set.of("count", "sum", "avg", "min", "max");
+
+    private static final Map<String, String> HAVING_OPERATORS = Map.of(
+            "eq", "$eq", "ne", "$ne", "gt", "$gt", "gte", "$gte", "lt", "$lt", "lte", "$lte");
+
+    private static final Pattern METRIC_ALIAS = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,63}");
+
+    // Record-level fields stored outside of TableData.data
+    private static final Set<String> RECORD_FIELDS = Set.of("id", "createdAt", "updatedAt");
+
+    @Value("${app.tables.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.tables.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.tables.batch-chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${app.tables.transaction-max-operations:1000}")
+    private int transactionMaxOperations;
+
+    @Value("${app.tables.batch-max-rows:10000}")
+    private int batchMaxRows;
+
+    @Value("${app.tables.time-series-max-buckets:10000}")
+    private int timeSeriesMaxBuckets;
+
+    @Value("${app.tables.count-estimate-threshold:100000}")
+    private long countEstimateThreshold;
+
+    @Value("${app.tables.facet-max-values:1000}")
+    private int facetMaxValues;
+
+    @Value("${app.tables.aggregate-max-groups:1000}")
+    private int aggregateMaxGroups;
 
     @Override
     public void createTables(String projectUuid, String schemaName, Map<String, String> schema) {
@@ -40,6 +149,11 @@ public class TableServiceImpl implements TableService {
 
     // New method that includes user validation
     public void createTablesWithUserValidation(String userUuid, String projectUuid, String schemaName, Map<String, String> schema) {
+        createTablesWithUserValidation(userUuid, projectUuid, schemaName, schema, null);
+    }
+
+    public void createTablesWithUserValidation(String userUuid, String projectUuid, String schemaName, Map<String, String> schema,
+                                               CreateTableRequestDTO.TimeSeries timeSeries) {
         try {
             // Validate user exists (if userUuid provided)
             if (userUuid != null) {
@@ -77,7 +191,15 @@ public class TableServiceImpl implements TableService {
 
             // Create table schema
             TableSchema tableSchema = new TableSchema(schemaName, project.getProjectUuid(), schema);
+            if (timeSeries != null) {
+                createTimeSeriesCollection(tableSchema, timeSeries);
+            } else {
+                assignStorage(tableSchema);
+            }
+            // Index failures are reported before the table exists
+            tableIndexService.syncTableIndexes(tableSchema);
             tableSchemaRepository.save(tableSchema);
+            tableCollectionResolver.evict(schemaName, project.getProjectUuid());
 
             // Generate endpoints automatically
             dynamicEndpointService.generateEndpointsForTable(tableSchema);
@@ -126,6 +248,67 @@ public class TableServiceImpl implements TableService {
                 .orElse(null);
     }
 
+    @Override
+    public void deleteTable(String schemaName, String projectUuid) {
+        deleteTableWithUserValidation(null, schemaName, projectUuid);
+    }
+
+    public void deleteTableWithUserValidation(String userUuid, String schemaName, String projectUuid) {
+        try {
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+
+            // Refuse to drop a table that other tables still reference
+            List<String> referencingTables = getTablesByProjectId(projectUuid).stream()
+                    .filter(table -> table.getRelationships() != null && table.getRelationships().stream()
+                            .anyMatch(rel -> schemaName.equals(rel.getReferencedTable())))
+                    .map(TableSchema::getSchemaName)
+                    .filter(name -> !name.equals(schemaName))
+                    .toList();
+            if (!referencingTables.isEmpty()) {
+                throw new RuntimeException("Table '" + schemaName + "' is referenced by " + referencingTables);
+            }
+
+            TableSchema.StorageMigration migration = tableSchema.getStorageMigration();
+            if (migration != null && migration.inProgress()) {
+                throw new RuntimeException("Table '" + schemaName + "' is being migrated, try again once the migration has finished");
+            }
+
+            String collection = tableCollectionResolver.collectionFor(tableSchema);
+            if (TableCollectionResolver.SHARED_COLLECTION.equals(collection)) {
+                mongoTemplate.remove(new Query(tableCriteria(schemaName, projectUuid)), TableData.class, collection);
+                tableIndexService.dropTableIndexes(tableSchema);
+            } else {
+                // A dedicated collection takes its indexes with it
+                mongoTemplate.dropCollection(collection);
+            }
+            dynamicEndpointService.removeEndpointsForTableAndProject(schemaName, projectUuid);
+            webhookService.deleteSubscriptions(tableSchema);
+            tableSchemaRepository.delete(tableSchema);
+            tableCollectionResolver.evict(schemaName, projectUuid);
+
+            log.info("Table '{}' dropped from project '{}' by user '{}'", schemaName, projectUuid, userUuid);
+
+        } catch (Exception e) {
+            log.error("Failed to drop table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to drop table: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String migrateTableStorage(String schemaName, String projectUuid) {
+        return migrateTableStorageWithUserValidation(null, schemaName, projectUuid);
+    }
+
+    public String migrateTableStorageWithUserValidation(String userUuid, String schemaName, String projectUuid) {
+        try {
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+            return tableStorageMigrationService.startMigration(tableSchema);
+        } catch (Exception e) {
+            log.error("Failed to migrate table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to migrate table storage: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void insertData(String schemaName, String projectUuid, Map<String, Object> data) {
         insertDataWithUserValidation(null, schemaName, projectUuid, data);
@@ -136,57 +319,438 @@ public class TableServiceImpl implements TableService {
         try {
             log.info("Attempting to insert data into table: {}, projectUuid: {}", schemaName, projectUuid);
 
-            if (projectUuid == null) {
-                throw new RuntimeException("Project UUID is required when inserting data");
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+
+            // Same row checks as the batch insert, so both endpoints accept the same rows
+            String error = validateRow(data);
+            if (error != null) {
+                throw new RuntimeException(error);
             }
 
-            // Validate user exists (if userUuid provided)
-            if (userUuid != null) {
-                userRepository.findByUuid(userUuid)
-                    .orElseThrow(() -> new RuntimeException("User with UUID " + userUuid + " not found"));
+            // Create new table data document in MongoDB
+            TableData tableData = new TableData(schemaName, projectUuid, data);
+            error = stampTimeSeries(tableSchema, tableData);
+            if (error == null) {
+                error = stampExpiry(tableSchema, tableData);
+            }
+            if (error != null) {
+                throw new RuntimeException(error);
             }
+            try {
+                mongoTemplate.insert(tableData, tableCollectionResolver.collectionFor(tableSchema));
+            } catch (DuplicateKeyException e) {
+                throw duplicateKeyConflict(schemaName, e);
+            }
+            publish(projectUuid, schemaName, WebhookService.EVENT_INSERT, List.of(toRecord(tableData)));
 
-            // Validate project exists and belongs to user (if userUuid provided)
-            Optional<Projects> projectOpt = projectRepository.findByProjectUuid(projectUuid);
-            if (projectOpt.isEmpty()) {
-                throw new RuntimeException("Project with UUID " + projectUuid + " not found");
+            log.info("Inserted record '{}' into table '{}' in project '{}'", tableData.getId(), schemaName, projectUuid);
+
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to insert into table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to insert data: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> insertDataBatch(String schemaName, String projectUuid, List<Map<String, Object>> rows) {
+        return insertDataBatchWithUserValidation(null, schemaName, projectUuid, rows);
+    }
+
+    public Map<String, Object> insertDataBatchWithUserValidation(String userUuid, String schemaName, String projectUuid,
+                                                                  List<Map<String, Object>> rows) {
+        try {
+            if (rows == null || rows.isEmpty()) {
+                throw new RuntimeException("At least one row is required");
+            }
+            if (rows.size() > batchMaxRows) {
+                throw new RuntimeException("Batch contains " + rows.size() + " rows, the maximum is " + batchMaxRows);
             }
 
-            Projects project = projectOpt.get();
-            if (userUuid != null && !project.getUserUuid().equals(userUuid)) {
-                throw new RuntimeException("Project " + projectUuid + " does not belong to user " + userUuid);
+            // User, project and schema are validated once for the whole batch
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+            String collection = tableCollectionResolver.collectionFor(tableSchema);
+
+            List<Map<String, Object>> results = new ArrayList<>(rows.size());
+            List<TableData> validRows = new ArrayList<>();
+            List<Integer> validIndexes = new ArrayList<>();
+
+            for (int i = 0; i < rows.size(); i++) {
+                String error = validateRow(rows.get(i));
+                if (error != null) {
+                    results.add(batchResult(i, "failed", null, error));
+                    continue;
+                }
+                TableData tableData = new TableData(schemaName, projectUuid, rows.get(i));
+                error = stampTimeSeries(tableSchema, tableData);
+                if (error == null) {
+                    error = stampExpiry(tableSchema, tableData);
+                }
+                if (error != null) {
+                    results.add(batchResult(i, "failed", null, error));
+                    continue;
+                }
+                // Assign ids up front so they can be reported back per row
+                tableData.setId(new ObjectId().toHexString());
+                validRows.add(tableData);
+                validIndexes.add(i);
+                results.add(null);
             }
 
-            // Verify table schema exists
-            TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
-            if (tableSchema == null) {
-                throw new RuntimeException("Table '" + schemaName + "' does not exist in project " + projectUuid);
+            int inserted = 0;
+            String abortError = null;
+            for (int start = 0; start < validRows.size(); start += batchChunkSize) {
+                int end = Math.min(start + batchChunkSize, validRows.size());
+                List<TableData> chunk = validRows.subList(start, end);
+
+                if (abortError != null) {
+                    for (int j = 0; j < chunk.size(); j++) {
+                        int rowIndex = validIndexes.get(start + j);
+                        results.set(rowIndex, batchResult(rowIndex, "failed", null, "Not written: " + abortError));
+                    }
+                    continue;
+                }
+
+                Map<Integer, String> chunkErrors = new HashMap<>();
+                try {
+                    mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TableData.class, collection)
+                            .insert(chunk)
+                            .execute();
+                } catch (BulkOperationException e) {
+                    e.getErrors().forEach(error -> chunkErrors.put(error.getIndex(), bulkErrorMessage(schemaName, error)));
+                } catch (Exception e) {
+                    // Network error, timeout, ...: earlier chunks are already written, so they are still reported
+                    // per row; this chunk and the remaining ones are failed instead of failing the whole call
+                    log.error("Batch insert into table '{}' in project '{}' stopped at row {}: {}",
+                            schemaName, projectUuid, validIndexes.get(start), e.getMessage());
+                    abortError = "the batch stopped at an earlier write error (" + e.getMessage() + ")";
+                    for (int j = 0; j < chunk.size(); j++) {
+                        chunkErrors.put(j, "Write failed: " + e.getMessage());
+                    }
+                }
+
+                List<Map<String, Object>> created = new ArrayList<>();
+                for (int j = 0; j < chunk.size(); j++) {
+                    int rowIndex = validIndexes.get(start + j);
+                    String error = chunkErrors.get(j);
+                    if (error == null) {
+                        results.set(rowIndex, batchResult(rowIndex, "created", chunk.get(j).getId(), null));
+                        created.add(toRecord(chunk.get(j)));
+                        inserted++;
+                    } else {
+                        results.set(rowIndex, batchResult(rowIndex, "failed", null, error));
+                    }
+                }
+                publish(projectUuid, schemaName, WebhookService.EVENT_INSERT, created);
             }
 
-            // Create new table data document in MongoDB
-            TableData tableData = new TableData(schemaName, projectUuid, data);
-            tableDataRepository.save(tableData);
+            log.info("Batch inserted {}/{} rows into table '{}' for project '{}'", inserted, rows.size(), schemaName, projectUuid);
 
-            System.out.println("Data inserted successfully into table '" + schemaName + "' for project " + projectUuid);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requested", rows.size());
+            summary.put("inserted", inserted);
+            summary.put("failed", rows.size() - inserted);
+            summary.put("results", results);
+            return summary;
 
         } catch (Exception e) {
-            System.err.println("Error inserting data: " + e.getMessage());
+            log.error("Failed to batch insert into table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
             throw new RuntimeException("Failed to insert data: " + e.getMessage(), e);
         }
     }
 
+    @Override
+    public TableSchema setNaturalKey(String schemaName, String projectUuid, List<String> columns) {
+        return setNaturalKeyWithUserValidation(null, schemaName, projectUuid, columns);
+    }
+
+    public TableSchema setNaturalKeyWithUserValidation(String userUuid, String schemaName, String projectUuid, List<String> columns) {
+        try {
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+            if (tableSchema.getTimeSeries() != null) {
+                throw new RuntimeException("Time-series tables are append-only and cannot have a natural key");
+            }
+            List<String> naturalKey = columns != null ? columns.stream().distinct().toList() : List.of();
+            for (String column : naturalKey) {
+                if (tableSchema.getSchema() == null || !tableSchema.getSchema().containsKey(column)) {
+                    throw new RuntimeException("Column '" + column + "' does not exist in table '" + schemaName + "'");
+                }
+            }
+
+            tableSchema.setNaturalKey(naturalKey.isEmpty() ? null : naturalKey);
+            // Fails on duplicate keys in existing records, before anything is saved
+            tableIndexService.syncNaturalKeyIndex(tableSchema);
+            tableSchema.setUpdatedAt(LocalDateTime.now());
+            TableSchema saved = tableSchemaRepository.save(tableSchema);
+
+            log.info("Natural key of table '{}' in project '{}' set to {}", schemaName, projectUuid, naturalKey);
+            return saved;
+
+        } catch (Exception e) {
+            log.error("Failed to set natural key of table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to set natural key: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public TableSchema setTtl(String schemaName, String projectUuid, Long expireAfterSeconds, String expiresAtField) {
+        return setTtlWithUserValidation(null, schemaName, projectUuid, expireAfterSeconds, expiresAtField);
+    }
+
+    public TableSchema setTtlWithUserValidation(String userUuid, String schemaName, String projectUuid,
+                                                Long expireAfterSeconds, String expiresAtField) {
+        try {
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+            if (expireAfterSeconds != null && expiresAtField != null) {
+                throw new RuntimeException("Set either expireAfterSeconds or expiresAtField, not both");
+            }
+            if (expireAfterSeconds != null && expireAfterSeconds <= 0) {
+                throw new RuntimeException("expireAfterSeconds must be positive");
+            }
+            if (expiresAtField != null) {
+                ColumnDefinition column = ColumnDefinition.parseSchema(tableSchema.getSchema()).get(expiresAtField);
+                if (column == null || column.kind() != ColumnDefinition.Kind.DATE) {
+                    throw new RuntimeException("expiresAtField must name a DATE, DATETIME or TIMESTAMP column of table '" + schemaName + "'");
+                }
+            }
+
+            TableSchema.Ttl ttl = null;
+            if (expireAfterSeconds != null || expiresAtField != null) {
+                ttl = new TableSchema.Ttl();
+                ttl.setExpireAfterSeconds(expireAfterSeconds);
+                ttl.setExpiresAtField(expiresAtField);
+            }
+            tableSchema.setTtl(ttl);
+            // The index goes first: it is what can fail, and on an expiry column it starts out empty
+            tableIndexService.syncTtlIndex(tableSchema);
+            tableSchema.setUpdatedAt(LocalDateTime.now());
+            TableSchema saved = tableSchemaRepository.save(tableSchema);
+            tableCollectionResolver.evict(schemaName, projectUuid);
+
+            if (expiresAtField != null) {
+                long stamped = backfillExpiry(saved);
+                log.info("Expiry of {} existing records of table '{}' taken from '{}'", stamped, schemaName, expiresAtField);
+            }
+            log.info("TTL of table '{}' in project '{}' set to {}", schemaName, projectUuid, ttl);
+            return saved;
+
+        } catch (Exception e) {
+            log.error("Failed to set TTL of table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to set TTL: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> createWebhook(String schemaName, String projectUuid, WebhookRequestDTO request) {
+        return createWebhookWithUserValidation(null, schemaName, projectUuid, request);
+    }
+
+    public Map<String, Object> createWebhookWithUserValidation(String userUuid, String schemaName, String projectUuid,
+                                                               WebhookRequestDTO request) {
+        try {
+            TableSchema tableSchema = requireWritableTable(userUuid, schemaName, projectUuid);
+            if (tableSchema.getTimeSeries() != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Time-series table '" + schemaName + "' has no webhooks");
+            }
+            return webhookService.createSubscription(tableSchema, request);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to create webhook on table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to create webhook: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getWebhooks(String schemaName, String projectUuid) {
+        return getWebhooksWithUserValidation(null, schemaName, projectUuid);
+    }
+
+    public List<Map<String, Object>> getWebhooksWithUserValidation(String userUuid, String schemaName, String projectUuid) {
+        try {
+            return webhookService.listSubscriptions(requireWritableTable(userUuid, schemaName, projectUuid));
+        } catch (Exception e) {
+            log.error("Failed to list webhooks of table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to list webhooks: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteWebhook(String schemaName, String projectUuid, String webhookId) {
+        deleteWebhookWithUserValidation(null, schemaName, projectUuid, webhookId);
+    }
+
+    public void deleteWebhookWithUserValidation(String userUuid, String schemaName, String projectUuid, String webhookId) {
+        try {
+            webhookService.deleteSubscription(requireWritableTable(userUuid, schemaName, projectUuid), webhookId);
+            log.info("Webhook '{}' removed from table '{}' in project '{}'", webhookId, schemaName, projectUuid);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to delete webhook '{}' of table '{}' in project '{}': {}", webhookId, schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to delete webhook: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> upsertRecord(String schemaName, String projectUuid, Map<String, Object> row) {
+        try {
+            TableSchema tableSchema = requireNaturalKey(schemaName, projectUuid);
+            String error = validateRow(row);
+            if (error == null) {
+                error = naturalKeyError(tableSchema, row);
+            }
+            if (error == null) {
+                error = expiryError(expiresAtFieldOf(tableSchema), row);
+            }
+            if (error != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+            }
+
+            String collection = tableCollectionResolver.collectionFor(tableSchema);
+            TableData record;
+            try {
+                record = mongoTemplate.findAndModify(naturalKeyQuery(tableSchema, row), upsertUpdate(tableSchema, row),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), TableData.class, collection);
+            } catch (DuplicateKeyException e) {
+                // A concurrent upsert inserted the same key first; the retry turns into an update
+                try {
+                    record = mongoTemplate.findAndModify(naturalKeyQuery(tableSchema, row), upsertUpdate(tableSchema, row),
+                            FindAndModifyOptions.options().upsert(true).returnNew(true), TableData.class, collection);
+                } catch (DuplicateKeyException retryError) {
+                    throw duplicateKeyConflict(schemaName, retryError);
+                }
+            }
+
+            // Only a record inserted by this upsert is still at version 0
+            boolean created = record.currentVersion() == 0L;
+            publish(projectUuid, schemaName, created ? WebhookService.EVENT_INSERT : WebhookService.EVENT_UPDATE,
+                    List.of(toRecord(record)));
+            Map<String, Object> result = toRecord(record);
+            result.put("created", created);
+            return result;
+
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to upsert into table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to upsert record: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> upsertRecords(String schemaName, String projectUuid, List<Map<String, Object>> rows) {
+        try {
+            if (rows == null || rows.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one row is required");
+            }
+            if (rows.size() > batchMaxRows) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Batch contains " + rows.size() + " rows, the maximum is " + batchMaxRows);
+            }
+            TableSchema tableSchema = requireNaturalKey(schemaName, projectUuid);
+            String collection = tableCollectionResolver.collectionFor(tableSchema);
+
+            List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(rows.size(), null));
+            List<Integer> validIndexes = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                String error = validateRow(rows.get(i));
+                if (error == null) {
+                    error = naturalKeyError(tableSchema, rows.get(i));
+                }
+                if (error == null) {
+                    error = expiryError(expiresAtFieldOf(tableSchema), rows.get(i));
+                }
+                if (error != null) {
+                    results.set(i, batchResult(i, "failed", null, error));
+                } else {
+                    validIndexes.add(i);
+                }
+            }
+
+            int created = 0;
+            int updated = 0;
+            for (int start = 0; start < validIndexes.size(); start += batchChunkSize) {
+                List<Integer> chunk = validIndexes.subList(start, Math.min(start + batchChunkSize, validIndexes.size()));
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TableData.class, collection);
+                for (int rowIndex : chunk) {
+                    bulk.upsert(naturalKeyQuery(tableSchema, rows.get(rowIndex)), upsertUpdate(tableSchema, rows.get(rowIndex)));
+                }
+
+                BulkWriteResult writeResult;
+                Map<Integer, String> chunkErrors = new HashMap<>();
+                try {
+                    writeResult = bulk.execute();
+                } catch (BulkOperationException e) {
+                    writeResult = e.getResult();
+                    e.getErrors().forEach(error -> chunkErrors.put(error.getIndex(), bulkErrorMessage(schemaName, error)));
+                }
+                Map<Integer, String> inserted = new HashMap<>();
+                writeResult.getUpserts().forEach(upsert ->
+                        inserted.put(upsert.getIndex(), upsert.getId().asObjectId().getValue().toHexString()));
+
+                // The bulk result only names created records; the written ones are re-read by natural key so that
+                // results and webhook events carry the id and version of updated rows too
+                List<Map<String, Object>> writtenRows = new ArrayList<>();
+                for (int j = 0; j < chunk.size(); j++) {
+                    if (!chunkErrors.containsKey(j)) {
+                        writtenRows.add(rows.get(chunk.get(j)));
+                    }
+                }
+                Map<List<Object>, TableData> written = findByNaturalKeys(tableSchema, writtenRows, collection);
+
+                List<Map<String, Object>> createdRecords = new ArrayList<>();
+                List<Map<String, Object>> updatedRecords = new ArrayList<>();
+                for (int j = 0; j < chunk.size(); j++) {
+                    int rowIndex = chunk.get(j);
+                    if (chunkErrors.containsKey(j)) {
+                        results.set(rowIndex, batchResult(rowIndex, "failed", null, chunkErrors.get(j)));
+                        continue;
+                    }
+                    // Missing only if the record was deleted again right after the write
+                    TableData record = written.get(naturalKeyOf(tableSchema, rows.get(rowIndex)));
+                    boolean isCreated = inserted.containsKey(j);
+                    results.set(rowIndex, batchResult(rowIndex, isCreated ? "created" : "updated",
+                            record != null ? record.getId() : inserted.get(j), null));
+                    if (record != null) {
+                        (isCreated ? createdRecords : updatedRecords).add(toRecord(record));
+                    }
+                    if (isCreated) {
+                        created++;
+                    } else {
+                        updated++;
+                    }
+                }
+                publish(projectUuid, schemaName, WebhookService.EVENT_INSERT, createdRecords);
+                publish(projectUuid, schemaName, WebhookService.EVENT_UPDATE, updatedRecords);
+            }
+
+            log.info("Upserted {} rows into table '{}' for project '{}': {} created, {} updated",
+                    rows.size(), schemaName, projectUuid, created, updated);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requested", rows.size());
+            summary.put("created", created);
+            summary.put("updated", updated);
+            summary.put("failed", rows.size() - created - updated);
+            summary.put("results", results);
+            return summary;
+
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to upsert into table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to upsert records: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public List<Map<String, Object>> getAllDataFromTable(String schemaName) {
         try {
-            List<TableData> tableDataList = tableDataRepository.findBySchemaName(schemaName);
+            List<TableData> tableDataList = findTableRecords(schemaName, null);
             return tableDataList.stream()
-                    .map(tableData -> {
-                        Map<String, Object> dataWithId = new HashMap<>(tableData.getData());
-                        dataWithId.put("id", tableData.getId());
-                        dataWithId.put("createdAt", tableData.getCreatedAt());
-                        dataWithId.put("updatedAt", tableData.getUpdatedAt());
-                        return dataWithId;
-                    })
+                    .map(TableRecords::toRecord)
                     .toList();
         } catch (Exception e) {
             System.err.println("Error retrieving data: " + e.getMessage());
@@ -197,15 +761,9 @@ public class TableServiceImpl implements TableService {
     @Override
     public List<Map<String, Object>> getDataFromTableByProject(String schemaName, String projectUuid) {
         try {
-            List<TableData> tableDataList = tableDataRepository.findBySchemaNameAndProjectId(schemaName, projectUuid);
+            List<TableData> tableDataList = findTableRecords(schemaName, projectUuid);
             return tableDataList.stream()
-                    .map(tableData -> {
-                        Map<String, Object> dataWithId = new HashMap<>(tableData.getData());
-                        dataWithId.put("id", tableData.getId());
-                        dataWithId.put("createdAt", tableData.getCreatedAt());
-                        dataWithId.put("updatedAt", tableData.getUpdatedAt());
-                        return dataWithId;
-                    })
+                    .map(TableRecords::toRecord)
                     .toList();
         } catch (Exception e) {
             System.err.println("Error retrieving data by project: " + e.getMessage());
@@ -213,68 +771,1047 @@ public class TableServiceImpl implements TableService {
         }
     }
 
+    @Override
+    public Map<String, Object> getDataPage(String schemaName, String projectUuid, int page, int size, String sort,
+                                           List<String> fields, List<String> filters) {
+        List<String> requested = parseFields(fields);
+        try {
+            if (page < 0) {
+                throw new RuntimeException("Page index must not be negative");
+            }
+            int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+
+            Criteria criteria = filteredCriteria(schemaName, projectUuid, filters);
+            String collection = tableCollectionResolver.collectionFor(schemaName, projectUuid);
+            long totalElements = mongoTemplate.count(new Query(criteria), TableData.class, collection);
+
+            Query query = new Query(criteria)
+                    .with(parseSort(sort))
+                    .skip((long) page * pageSize)
+                    .limit(pageSize);
+            applyProjection(query, requested);
+            List<Map<String, Object>> content = mongoTemplate.find(query, TableData.class, collection).stream()
+                    .map(tableData -> toRecord(tableData, requested))
+                    .toList();
+
+            long totalPages = (totalElements + pageSize - 1) / pageSize;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", content);
+            result.put("page", page);
+            result.put("size", pageSize);
+            result.put("totalElements", totalElements);
+            result.put("totalPages", totalPages);
+            result.put("hasNext", page + 1 < totalPages);
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to read page {} of table '{}' in project '{}': {}", page, schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to retrieve data from table: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getDataAfter(String schemaName, String projectUuid, String cursor, int size, String sort,
+                                            List<String> fields, List<String> filters) {
+        List<String> requested = parseFields(fields);
+        try {
+            int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+            Sort order = parseSort(sort);
+            Sort.Order keyOrder = order.iterator().next();
+            String sortPath = keyOrder.getProperty();
+            requireKeysetIndex(schemaName, projectUuid, sortPath);
+            String sortKey = KeysetCursor.sortKey(sortPath, keyOrder.getDirection());
+
+            Criteria criteria = filteredCriteria(schemaName, projectUuid, filters);
+            if (cursor != null && !cursor.isBlank()) {
+                KeysetCursor position = KeysetCursor.decode(cursor, sortKey);
+                criteria = new Criteria().andOperator(criteria, position.after(sortPath, keyOrder.getDirection()));
+            }
+
+            // One extra record tells whether there is a next page without a count
+            Query query = new Query(criteria).with(order).limit(pageSize + 1);
+            applyProjection(query, requested);
+            if (requested != null && !requested.isEmpty()) {
+                query.fields().include(sortPath);
+            }
+            String collection = tableCollectionResolver.collectionFor(schemaName, projectUuid);
+            List<TableData> records = mongoTemplate.find(query, TableData.class, collection);
+
+            boolean hasNext = records.size() > pageSize;
+            List<TableData> page = hasNext ? records.subList(0, pageSize) : records;
+            String next = null;
+            if (hasNext) {
+                TableData last = page.get(page.size() - 1);
+                next = new KeysetCursor(sortKey, keysetValue(last, sortPath), keysetId(last.getId())).encode();
+            }
+
+            String sortColumn = sortPath.startsWith("data.") ? sortPath.substring("data.".length()) : null;
+            List<Map<String, Object>> content = page.stream()
+                    .map(tableData -> {
+                        Map<String, Object> record = toRecord(tableData, requested);
+                        // The sort column is only fetched to build the cursor
+                        if (sortColumn != null && requested != null && !requested.isEmpty() && !requested.contains(sortColumn)) {
+                            record.remove(sortColumn);
+                        }
+                        return record;
+                    })
+                    .toList();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", content);
+            result.put("size", pageSize);
+            result.put("hasNext", hasNext);
+            result.put("next", next);
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to read keyset page of table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to retrieve data from table: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> countRecords(String schemaName, String projectUuid, List<String> filters, boolean exact) {
+        try {
+            String collection = tableCollectionResolver.collectionFor(schemaName, projectUuid);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("table", schemaName);
+            result.put("projectId", projectUuid);
+
+            // A dedicated collection holds only this table, so its metadata count is the table's size; it is
+            // only worth trading exactness for once the table is large enough for countDocuments to be slow
+            boolean unfiltered = filters == null || filters.isEmpty();
+            if (!exact && unfiltered && !TableCollectionResolver.SHARED_COLLECTION.equals(collection)) {
+                long estimate = mongoTemplate.estimatedCount(collection);
+                if (estimate >= countEstimateThreshold) {
+                    result.put("count", estimate);
+                    result.put("exact", false);
+                    result.put("method", "estimatedDocumentCount");
+                    return result;
+                }
+            }
+
+            // Within the shared collection the (projectId, schemaName) index answers the count without reading records
+            Criteria criteria = filteredCriteria(schemaName, projectUuid, filters);
+            result.put("count", mongoTemplate.count(new Query(criteria), TableData.class, collection));
+            result.put("exact", true);
+            result.put("method", "countDocuments");
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to count records of table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to count records: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> searchRecords(String schemaName, String projectUuid, String text, int page, int size) {
+        try {
+            if (text == null || text.isBlank()) {
+                throw new RuntimeException("Search text is required");
+            }
+            if (page < 0) {
+                throw new RuntimeException("Page index must not be negative");
+            }
+            if (projectUuid == null || projectUuid.isEmpty()) {
+                throw new RuntimeException("projectId is required");
+            }
+            TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+            if (tableSchema == null) {
+                throw new RuntimeException("Table '" + schemaName + "' not found");
+            }
+            if (ColumnDefinition.parseSchema(tableSchema.getSchema()).values().stream().noneMatch(ColumnDefinition::searchable)) {
+                throw new RuntimeException("Table '" + schemaName + "' has no SEARCHABLE columns");
+            }
+            // projectId and schemaName are equality prefixes of the collection's text index
+            String collection = tableCollectionResolver.collectionFor(tableSchema);
+            if (TableCollectionResolver.SHARED_COLLECTION.equals(collection)) {
+                throw new RuntimeException("Table '" + schemaName + "' is stored in the shared collection, which has no "
+                        + "text index; migrate it to its own collection (POST /table/" + schemaName + "/project/"
+                        + projectUuid + "/storage/migrate) to search it");
+            }
+            int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+            TextCriteria textCriteria = TextCriteria.forDefaultLanguage().matching(text);
+            long totalElements = mongoTemplate.count(
+                    TextQuery.queryText(textCriteria).addCriteria(tableCriteria(schemaName, projectUuid)),
+                    TableData.class, collection);
+
+            Query query = TextQuery.queryText(textCriteria)
+                    .sortByScore()
+                    .includeScore(SEARCH_SCORE_FIELD)
+                    .addCriteria(tableCriteria(schemaName, projectUuid))
+                    .skip((long) page * pageSize)
+                    .limit(pageSize);
+            List<Map<String, Object>> content = mongoTemplate.find(query, Document.class, collection).stream()
+                    .map(document -> {
+                        Map<String, Object> record = toRecord(mongoTemplate.getConverter().read(TableData.class, document));
+                        record.put(SEARCH_SCORE_FIELD, document.get(SEARCH_SCORE_FIELD));
+                        return record;
+                    })
+                    .toList();
+
+            long totalPages = (totalElements + pageSize - 1) / pageSize;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", content);
+            result.put("page", page);
+            result.put("size", pageSize);
+            result.put("totalElements", totalElements);
+            result.put("totalPages", totalPages);
+            result.put("hasNext", page + 1 < totalPages);
+            return result;
+        } catch (Exception e) {
+            log.error("Search in table '{}' of project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to search table: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> findNear(String schemaName, String projectUuid, String column, double longitude, double latitude,
+                                        Double maxDistance, int limit, List<String> filters) {
+        try {
+            if (projectUuid == null || projectUuid.isEmpty()) {
+                throw new RuntimeException("projectId is required");
+            }
+            TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+            if (tableSchema == null) {
+                throw new RuntimeException("Table '" + schemaName + "' not found");
+            }
+            ColumnDefinition definition = ColumnDefinition.parseSchema(tableSchema.getSchema()).get(column);
+            if (definition == null || !definition.isGeo()) {
+                throw new RuntimeException("'" + column + "' is not a POINT or GEOMETRY column of table '" + schemaName + "'");
+            }
+            if (Math.abs(longitude) > 180 || Math.abs(latitude) > 90) {
+                throw new RuntimeException("(" + longitude + ", " + latitude + ") is not a valid longitude, latitude");
+            }
+            if (maxDistance != null && maxDistance <= 0) {
+                throw new RuntimeException("maxDistance must be positive");
+            }
+            int resultLimit = limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+
+            // $geoNear must be the first stage and is served by the column's 2dsphere index
+            NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                    .spherical(true)
+                    .in(METERS)
+                    .query(new Query(filteredCriteria(schemaName, projectUuid, filters)));
+            if (maxDistance != null) {
+                nearQuery.maxDistance(maxDistance);
+            }
+            Aggregation aggregation = Aggregation.newAggregation(TableData.class,
+                    Aggregation.geoNear(nearQuery, DISTANCE_FIELD).useIndex("data." + column),
+                    Aggregation.limit(resultLimit));
+
+            List<Map<String, Object>> content = mongoTemplate.aggregate(aggregation,
+                            tableCollectionResolver.collectionFor(tableSchema), Document.class)
+                    .getMappedResults().stream()
+                    .map(document -> {
+                        Map<String, Object> record = toRecord(mongoTemplate.getConverter().read(TableData.class, document));
+                        record.put(DISTANCE_FIELD, document.get(DISTANCE_FIELD));
+                        return record;
+                    })
+                    .toList();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", content);
+            result.put("size", content.size());
+            return result;
+        } catch (Exception e) {
+            log.error("Near query on '{}.{}' in project '{}' failed: {}", schemaName, column, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to find nearby records: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getTimeSeriesRange(String schemaName, String projectUuid, String from, String to, String meta,
+                                                  String order, String cursor, int size, List<String> filters) {
+        try {
+            TableSchema tableSchema = requireTimeSeriesTable(schemaName, projectUuid);
+            int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+            Sort.Direction direction = "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
+            String timePath = TableSchema.TimeSeries.TIME_FIELD;
+            String sortKey = KeysetCursor.sortKey(timePath, direction);
+
+            Criteria criteria = timeSeriesCriteria(tableSchema, parseTimeBound("from", from), parseTimeBound("to", to), meta, filters);
+            if (cursor != null && !cursor.isBlank()) {
+                KeysetCursor position = KeysetCursor.decode(cursor, sortKey);
+                criteria = new Criteria().andOperator(criteria, position.after(timePath, direction));
+            }
+
+            // One extra record tells whether there is a next page without a count
+            Query query = new Query(criteria)
+                    .with(Sort.by(direction, timePath).and(Sort.by(Sort.Direction.ASC, "_id")))
+                    .limit(pageSize + 1);
+            List<TableData> records = mongoTemplate.find(query, TableData.class, tableCollectionResolver.collectionFor(tableSchema));
+
+            boolean hasNext = records.size() > pageSize;
+            List<TableData> page = hasNext ? records.subList(0, pageSize) : records;
+            String next = null;
+            if (hasNext) {
+                TableData last = page.get(page.size() - 1);
+                next = new KeysetCursor(sortKey, Date.from(last.getTimestamp()), keysetId(last.getId())).encode();
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", page.stream().map(TableRecords::toRecord).toList());
+            result.put("size", pageSize);
+            result.put("hasNext", hasNext);
+            result.put("next", next);
+            return result;
+        } catch (Exception e) {
+            log.error("Range read on time-series table '{}' in project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to read time range: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> aggregateTimeSeries(String schemaName, String projectUuid, String from, String to, String interval,
+                                                   List<String> columns, String meta, boolean byMeta, List<String> filters) {
+        try {
+            TableSchema tableSchema = requireTimeSeriesTable(schemaName, projectUuid);
+            Instant start = parseTimeBound("from", from);
+            Instant end = parseTimeBound("to", to);
+            if (start == null || end == null || !start.isBefore(end)) {
+                throw new RuntimeException("from and to are required and from must be before to");
+            }
+            BucketInterval bucket = BucketInterval.parse(interval);
+            long buckets = (end.toEpochMilli() - start.toEpochMilli()) / bucket.millis() + 1;
+            if (buckets > timeSeriesMaxBuckets) {
+                throw new RuntimeException("Range spans " + buckets + " buckets of " + interval + ", the maximum is "
+                        + timeSeriesMaxBuckets + "; use a wider interval or a shorter range");
+            }
+            if (byMeta && tableSchema.getTimeSeries().getMetaField() == null) {
+                throw new RuntimeException("Table '" + schemaName + "' has no meta field to group by");
+            }
+
+            Map<String, ColumnDefinition> definitions = ColumnDefinition.parseSchema(tableSchema.getSchema());
+            List<String> measured = columns != null ? columns.stream().distinct().toList() : List.of();
+            for (String column : measured) {
+                ColumnDefinition definition = definitions.get(column);
+                if (definition == null || (definition.kind() != ColumnDefinition.Kind.INTEGER
+                        && definition.kind() != ColumnDefinition.Kind.NUMBER)) {
+                    throw new RuntimeException("'" + column + "' is not a numeric column of table '" + schemaName + "'");
+                }
+            }
+
+            // Buckets are aligned by $dateTrunc; statistics are keyed by position because column names may not be valid field names
+            Document bucketId = new Document("start", new Document("$dateTrunc",
+                    new Document("date", "$" + TableSchema.TimeSeries.TIME_FIELD)
+                            .append("unit", bucket.unit())
+                            .append("binSize", bucket.binSize())));
+            if (byMeta) {
+                bucketId.append("meta", "$" + TableSchema.TimeSeries.META_FIELD);
+            }
+            Document group = new Document("_id", bucketId).append("count", new Document("$sum", 1));
+            for (int i = 0; i < measured.size(); i++) {
+                String path = "$data." + measured.get(i);
+                group.append("avg" + i, new Document("$avg", path))
+                        .append("min" + i, new Document("$min", path))
+                        .append("max" + i, new Document("$max", path))
+                        .append("sum" + i, new Document("$sum", path));
+            }
+
+            Aggregation aggregation = Aggregation.newAggregation(TableData.class,
+                    Aggregation.match(timeSeriesCriteria(tableSchema, start, end, meta, filters)),
+                    context -> new Document("$group", group),
+                    context -> new Document("$sort", new Document("_id.start", 1).append("_id.meta", 1)));
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Document document : mongoTemplate.aggregate(aggregation,
+                    tableCollectionResolver.collectionFor(tableSchema), Document.class).getMappedResults()) {
+                Document id = document.get("_id", Document.class);
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("start", id.getDate("start").toInstant().toString());
+                if (byMeta) {
+                    result.put("meta", id.get("meta"));
+                }
+                result.put("count", document.get("count"));
+                for (int i = 0; i < measured.size(); i++) {
+                    Map<String, Object> statistics = new LinkedHashMap<>();
+                    statistics.put("avg", document.get("avg" + i));
+                    statistics.put("min", document.get("min" + i));
+                    statistics.put("max", document.get("max" + i));
+                    statistics.put("sum", document.get("sum" + i));
+                    result.put(measured.get(i), statistics);
+                }
+                results.add(result);
+            }
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("from", start.toString());
+            response.put("to", end.toString());
+            response.put("interval", interval);
+            response.put("buckets", results);
+            return response;
+        } catch (Exception e) {
+            log.error("Aggregation on time-series table '{}' in project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to aggregate time series: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> distinctValues(String schemaName, String projectUuid, String column, List<String> filters, int limit) {
+        try {
+            ColumnDefinition definition = groupableColumns(schemaName, projectUuid, List.of(column)).get(0);
+            int valueLimit = limit <= 0 ? defaultPageSize : Math.min(limit, facetMaxValues);
+            String path = "data." + column;
+
+            // Only the column leaves the $match stage, and one extra value tells whether the list was cut off
+            List<AggregationOperation> stages = new ArrayList<>();
+            stages.add(Aggregation.match(filteredCriteria(schemaName, projectUuid, filters)));
+            stages.add(context -> new Document("$project", new Document("_id", 0).append(path, 1)));
+            if (definition.kind() == ColumnDefinition.Kind.ARRAY) {
+                stages.add(context -> new Document("$unwind", "$" + path));
+            }
+            stages.add(context -> new Document("$group", new Document("_id", "$" + path)));
+            stages.add(context -> new Document("$sort", new Document("_id", 1)));
+            stages.add(Aggregation.limit(valueLimit + 1));
+
+            // $group and $sort over a large table may exceed the 100 MB in-memory stage limit
+            Aggregation aggregation = Aggregation.newAggregation(TableData.class, stages)
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+            List<Object> values = mongoTemplate.aggregate(aggregation,
+                            tableCollectionResolver.collectionFor(schemaName, projectUuid), Document.class)
+                    .getMappedResults().stream()
+                    .map(document -> document.get("_id"))
+                    .toList();
+            boolean truncated = values.size() > valueLimit;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("table", schemaName);
+            result.put("column", column);
+            result.put("values", truncated ? values.subList(0, valueLimit) : values);
+            result.put("truncated", truncated);
+            return result;
+        } catch (Exception e) {
+            log.error("Distinct on '{}.{}' in project '{}' failed: {}", schemaName, column, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to read distinct values: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> facetCounts(String schemaName, String projectUuid, List<String> columns, List<String> filters, int limit) {
+        try {
+            List<String> faceted = columns != null ? columns.stream().distinct().toList() : List.of();
+            if (faceted.isEmpty()) {
+                throw new RuntimeException("At least one column is required");
+            }
+            List<ColumnDefinition> definitions = groupableColumns(schemaName, projectUuid, faceted);
+            int valueLimit = limit <= 0 ? defaultPageSize : Math.min(limit, facetMaxValues);
+
+            // One $facet pass over the matching records counts every column; facets are keyed by position
+            // because column names may not be valid field names
+            Document projection = new Document("_id", 0);
+            Document facets = new Document("matched", List.of(new Document("$count", "count")));
+            for (int i = 0; i < definitions.size(); i++) {
+                ColumnDefinition definition = definitions.get(i);
+                String path = "data." + definition.name();
+                projection.append(path, 1);
+                List<Document> pipeline = new ArrayList<>();
+                if (definition.kind() == ColumnDefinition.Kind.ARRAY) {
+                    pipeline.add(new Document("$unwind", "$" + path));
+                }
+                pipeline.add(new Document("$group", new Document("_id", "$" + path).append("count", new Document("$sum", 1))));
+                pipeline.add(new Document("$sort", new Document("count", -1).append("_id", 1)));
+                pipeline.add(new Document("$limit", valueLimit));
+                facets.append("f" + i, pipeline);
+            }
+
+            Aggregation aggregation = Aggregation.newAggregation(TableData.class,
+                    Aggregation.match(filteredCriteria(schemaName, projectUuid, filters)),
+                    context -> new Document("$project", projection),
+                    context -> new Document("$facet", facets))
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+            Document document = mongoTemplate.aggregate(aggregation,
+                    tableCollectionResolver.collectionFor(schemaName, projectUuid), Document.class).getUniqueMappedResult();
+
+            List<Document> matched = document.getList("matched", Document.class);
+            Map<String, Object> counts = new LinkedHashMap<>();
+            for (int i = 0; i < faceted.size(); i++) {
+                counts.put(faceted.get(i), document.getList("f" + i, Document.class).stream()
+                        .map(bucket -> {
+                            Map<String, Object> value = new LinkedHashMap<>();
+                            value.put("value", bucket.get("_id"));
+                            value.put("count", bucket.get("count"));
+                            return value;
+                        })
+                        .toList());
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("table", schemaName);
+            result.put("matched", matched.isEmpty() ? 0 : matched.get(0).get("count"));
+            result.put("facets", counts);
+            return result;
+        } catch (Exception e) {
+            log.error("Facets on table '{}' in project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to count facets: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> aggregateRecords(String schemaName, String projectUuid, AggregateRequestDTO request) {
+        try {
+            TableSchema tableSchema = resolveTableSchema(schemaName, projectUuid);
+            if (tableSchema == null) {
+                throw new RuntimeException("Table '" + schemaName + "' not found");
+            }
+            Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(tableSchema.getSchema());
+            List<AggregateRequestDTO.GroupBy> groupBy = request.getGroupBy() != null ? request.getGroupBy() : List.of();
+            List<AggregateRequestDTO.Metric> metrics = request.getMetrics() != null && !request.getMetrics().isEmpty()
+                    ? request.getMetrics() : List.of(new AggregateRequestDTO.Metric());
+            int groupLimit = request.getLimit() == null || request.getLimit() <= 0
+                    ? aggregateMaxGroups : Math.min(request.getLimit(), aggregateMaxGroups);
+
+            // Group keys and metrics are stored as g<i> / m<i>, as column names may not be valid field names;
+            // labels maps the names used in the request and the result onto those paths
+            Map<String, String> labels = new LinkedHashMap<>();
+            List<AggregationOperation> stages = new ArrayList<>();
+            stages.add(Aggregation.match(filteredCriteria(schemaName, projectUuid, request.getFilters())));
+
+            Document groupId = new Document();
+            for (int i = 0; i < groupBy.size(); i++) {
+                AggregateRequestDTO.GroupBy key = groupBy.get(i);
+                String column = key.getColumn();
+                String path = aggregatePath(tableSchema, columns, column);
+                ColumnDefinition definition = columns.get(column);
+                if (definition != null && definition.kind() == ColumnDefinition.Kind.ARRAY) {
+                    // Array columns group by each of their elements
+                    stages.add(context -> new Document("$unwind", path));
+                }
+                Object expression = path;
+                if (key.getInterval() != null && !key.getInterval().isBlank()) {
+                    if (definition != null && definition.kind() != ColumnDefinition.Kind.DATE) {
+                        throw new RuntimeException("Column '" + column + "' is not a date column and cannot be bucketed by time");
+                    }
+                    BucketInterval bucket = BucketInterval.parse(key.getInterval());
+                    // DATE columns hold ISO-8601 strings; unparseable values fall into a null bucket
+                    Object date = definition == null ? path : new Document("$dateFromString",
+                            new Document("dateString", path).append("onError", null).append("onNull", null));
+                    expression = new Document("$dateTrunc", new Document("date", date)
+                            .append("unit", bucket.unit())
+                            .append("binSize", bucket.binSize()));
+                }
+                if (labels.put(column, "_id.g" + i) != null) {
+                    throw new RuntimeException("Column '" + column + "' is grouped by more than once");
+                }
+                groupId.append("g" + i, expression);
+            }
+
+            Document group = new Document("_id", groupId.isEmpty() ? null : groupId);
+            List<String> aliases = new ArrayList<>(metrics.size());
+            for (int i = 0; i < metrics.size(); i++) {
+                AggregateRequestDTO.Metric metric = metrics.get(i);
+                String op = metric.getOp() != null ? metric.getOp().toLowerCase(Locale.ROOT) : "count";
+                if (!AGGREGATE_OPS.contains(op)) {
+                    throw new RuntimeException("Unknown metric '" + metric.getOp() + "', expected count, sum, avg, min or max");
+                }
+                String column = metric.getColumn();
+                if (column == null && !"count".equals(op)) {
+                    throw new RuntimeException("Metric " + op + " needs a column");
+                }
+                String path = column != null ? aggregatePath(tableSchema, columns, column) : null;
+                ColumnDefinition definition = column != null ? columns.get(column) : null;
+                if (("sum".equals(op) || "avg".equals(op)) && (definition == null
+                        || (definition.kind() != ColumnDefinition.Kind.INTEGER && definition.kind() != ColumnDefinition.Kind.NUMBER))) {
+                    throw new RuntimeException("Metric " + op + " needs a numeric column; '" + column + "' is not one");
+                }
+                if (("min".equals(op) || "max".equals(op)) && definition != null
+                        && (definition.kind() == ColumnDefinition.Kind.ARRAY || definition.kind() == ColumnDefinition.Kind.BOOLEAN)) {
+                    throw new RuntimeException("Metric " + op + " cannot compare the " + definition.baseType() + " column '" + column + "'");
+                }
+
+                String alias = metric.getAs() != null ? metric.getAs() : column == null ? "count" : op + "_" + column;
+                if (!METRIC_ALIAS.matcher(alias).matches()) {
+                    throw new RuntimeException("Invalid metric name '" + alias + "'");
+                }
+                if (labels.put(alias, "m" + i) != null) {
+                    throw new RuntimeException("Name '" + alias + "' is used more than once in the result");
+                }
+                aliases.add(alias);
+
+                if (!"count".equals(op)) {
+                    group.append("m" + i, new Document("$" + op, path));
+                } else if (path == null) {
+                    group.append("m" + i, new Document("$sum", 1));
+                } else {
+                    // A count over a column only counts records where it has a value
+                    group.append("m" + i, new Document("$sum",
+                            new Document("$cond", List.of(new Document("$gt", Arrays.asList(path, null)), 1, 0))));
+                }
+            }
+            stages.add(context -> new Document("$group", group));
+
+            if (request.getHaving() != null && !request.getHaving().isEmpty()) {
+                List<Document> conditions = new ArrayList<>();
+                for (AggregateRequestDTO.Having condition : request.getHaving()) {
+                    String path = labels.get(condition.getField());
+                    String operator = condition.getOp() != null ? HAVING_OPERATORS.get(condition.getOp().toLowerCase(Locale.ROOT)) : null;
+                    if (path == null) {
+                        throw new RuntimeException("having refers to '" + condition.getField() + "', which is not a metric or group column");
+                    }
+                    if (operator == null) {
+                        throw new RuntimeException("Unknown having operator '" + condition.getOp() + "', expected eq, ne, gt, gte, lt or lte");
+                    }
+                    conditions.add(new Document(path, new Document(operator, condition.getValue())));
+                }
+                stages.add(context -> new Document("$match", new Document("$and", conditions)));
+            }
+
+            // Sorted by the group keys unless asked otherwise, so results are stable across calls
+            Document sort = new Document();
+            List<String> requestedSort = request.getSort() != null ? request.getSort() : List.of();
+            for (String entry : requestedSort) {
+                String[] parts = entry.split(",");
+                String path = labels.get(parts[0].trim());
+                if (path == null) {
+                    throw new RuntimeException("Cannot sort by '" + parts[0].trim() + "', which is not a metric or group column");
+                }
+                Sort.Direction direction = parts.length > 1
+                        ? Sort.Direction.fromOptionalString(parts[1].trim())
+                                .orElseThrow(() -> new RuntimeException("Invalid sort direction: " + parts[1].trim()))
+                        : Sort.Direction.ASC;
+                sort.append(path, direction.isAscending() ? 1 : -1);
+            }
+            for (int i = 0; i < groupBy.size(); i++) {
+                sort.putIfAbsent("_id.g" + i, 1);
+            }
+            if (!sort.isEmpty()) {
+                stages.add(context -> new Document("$sort", sort));
+            }
+            // One extra group tells whether the result was cut off
+            stages.add(Aggregation.limit(groupLimit + 1));
+
+            Aggregation aggregation = Aggregation.newAggregation(TableData.class, stages)
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+            List<Document> documents = mongoTemplate.aggregate(aggregation,
+                    tableCollectionResolver.collectionFor(tableSchema), Document.class).getMappedResults();
+
+            boolean truncated = documents.size() > groupLimit;
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Document document : truncated ? documents.subList(0, groupLimit) : documents) {
+                Document id = document.get("_id", Document.class);
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 0; i < groupBy.size(); i++) {
+                    row.put(groupBy.get(i).getColumn(), aggregateValue(id != null ? id.get("g" + i) : null));
+                }
+                for (int i = 0; i < aliases.size(); i++) {
+                    row.put(aliases.get(i), aggregateValue(document.get("m" + i)));
+                }
+                rows.add(row);
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("table", schemaName);
+            result.put("groups", rows);
+            result.put("size", rows.size());
+            result.put("truncated", truncated);
+            return result;
+        } catch (Exception e) {
+            log.error("Aggregation on table '{}' in project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to aggregate records: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public Map<String, Object> getRecordById(String schemaName, String id) {
+        return getRecordById(schemaName, null, id, null);
+    }
+
+    @Override
+    public Map<String, Object> getRecordById(String schemaName, String projectUuid, String id, List<String> fields) {
+        List<String> requested = parseFields(fields);
         try {
-            Optional<TableData> tableDataOpt = tableDataRepository.findById(id);
-            if (tableDataOpt.isEmpty() || !tableDataOpt.get().getSchemaName().equals(schemaName)) {
+            // schemaName / projectId are part of the filter instead of being checked after the read
+            Query query = new Query(tableCriteria(schemaName, projectUuid).and("_id").is(id));
+            applyProjection(query, requested);
+
+            TableData tableData = mongoTemplate.findOne(query, TableData.class,
+                    tableCollectionResolver.collectionFor(schemaName, projectUuid));
+            if (tableData == null) {
                 return null;
             }
+            return toRecord(tableData, requested);
+        } catch (Exception e) {
+            System.err.println("Error retrieving record by ID: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve record: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void updateRecord(String schemaName, String id, Map<String, Object> data) {
+        updateRecord(schemaName, null, id, data, null);
+    }
+
+    @Override
+    public Map<String, Object> updateRecord(String schemaName, String projectUuid, String id, Map<String, Object> data,
+                                            Long expectedVersion) {
+        try {
+            String error = validateRow(data);
+            String expiresAtField = expiresAtFieldOf(schemaName, projectUuid);
+            if (error == null) {
+                error = expiryError(expiresAtField, data);
+            }
+            if (error != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+            }
+
+            // Only the supplied fields are rewritten, in a single round-trip
+            Update update = new Update();
+            data.forEach((field, value) -> update.set("data." + field, value));
+            setExpiry(update, expiresAtField, data);
+
+            TableData updated = modifyRecord(schemaName, projectUuid, id, update, expectedVersion);
+            log.info("Record '{}' in table '{}' updated to version {}", id, schemaName, updated.getVersion());
+            publish(updated.getProjectId(), schemaName, WebhookService.EVENT_UPDATE, List.of(toRecord(updated)));
+            return toRecord(updated);
+
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("Error updating record: " + e.getMessage());
+            throw new RuntimeException("Failed to update record: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> applyRecordOperations(String schemaName, String projectUuid, String id,
+                                                     RecordOperationsRequestDTO operations, Long expectedVersion) {
+        try {
+            TableSchema tableSchema = resolveTableSchema(schemaName, projectUuid);
+            if (tableSchema == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Table '" + schemaName + "' not found");
+            }
+            Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(tableSchema.getSchema());
+
+            Update update = new Update();
+            Set<String> touched = new HashSet<>();
+            forEachOperation(operations.getInc(), "inc", columns, touched, (column, value) -> {
+                if (column.kind() != ColumnDefinition.Kind.INTEGER && column.kind() != ColumnDefinition.Kind.NUMBER) {
+                    return "inc needs a numeric column";
+                }
+                if (!(value instanceof Number number) || !column.accepts(value)) {
+                    return "inc needs a " + column.baseType() + " amount";
+                }
+                update.inc("data." + column.name(), number);
+                return null;
+            });
+            forEachOperation(operations.getPush(), "push", columns, touched, (column, value) -> {
+                if (column.kind() != ColumnDefinition.Kind.ARRAY) {
+                    return "push needs an array column";
+                }
+                List<?> elements = value instanceof List<?> list ? list : Collections.singletonList(value);
+                if (!elements.stream().allMatch(column::acceptsElement)) {
+                    return "push value does not match the element type " + column.baseType();
+                }
+                update.push("data." + column.name()).each(elements.toArray());
+                return null;
+            });
+            forEachOperation(operations.getPull(), "pull", columns, touched, (column, value) -> {
+                if (column.kind() != ColumnDefinition.Kind.ARRAY) {
+                    return "pull needs an array column";
+                }
+                List<?> elements = value instanceof List<?> list ? list : Collections.singletonList(value);
+                update.pullAll("data." + column.name(), elements.toArray());
+                return null;
+            });
+            forEachOperation(operations.getMin(), "min", columns, touched, (column, value) -> {
+                String error = comparableValueError("min", column, value);
+                if (error == null) {
+                    update.min("data." + column.name(), value);
+                }
+                return error;
+            });
+            forEachOperation(operations.getMax(), "max", columns, touched, (column, value) -> {
+                String error = comparableValueError("max", column, value);
+                if (error == null) {
+                    update.max("data." + column.name(), value);
+                }
+                return error;
+            });
+            if (touched.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one operation is required");
+            }
+            String expiresAtField = expiresAtFieldOf(tableSchema);
+            if (expiresAtField != null && touched.contains(expiresAtField)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Expiry column '" + expiresAtField + "' can only be changed by an update");
+            }
+
+            TableData updated = modifyRecord(schemaName, projectUuid, id, update, expectedVersion);
+            log.info("Operations on {} applied to record '{}' in table '{}', now version {}", touched, id, schemaName, updated.getVersion());
+            publish(updated.getProjectId(), schemaName, WebhookService.EVENT_UPDATE, List.of(toRecord(updated)));
+            return toRecord(updated);
+
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to apply operations to record '{}' in table '{}': {}", id, schemaName, e.getMessage());
+            throw new RuntimeException("Failed to apply operations: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteRecord(String schemaName, String id) {
+        deleteRecord(schemaName, null, id);
+    }
+
+    @Override
+    public void deleteRecord(String schemaName, String projectUuid, String id) {
+        try {
+            // Table and project are part of the filter, so the check and the delete are one round-trip
+            Query query = new Query(projectCriteria(schemaName, projectUuid).and("_id").is(id));
+            long deleted = removeRecords(schemaName, projectUuid, query);
+            if (deleted == 0) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No record found with ID: " + id + " in table: " + schemaName);
+            }
+
+            log.info("Deleted record '{}' from table '{}' in project '{}'", id, schemaName, projectUuid);
+
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to delete record '{}' from table '{}' in project '{}': {}", id, schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to delete record: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getRecordsByIds(String schemaName, String projectUuid, List<String> ids, List<String> fields) {
+        List<String> requested = parseFields(fields);
+        try {
+            if (ids == null || ids.isEmpty()) {
+                throw new RuntimeException("At least one id is required");
+            }
+            if (ids.size() > batchMaxRows) {
+                throw new RuntimeException("Request contains " + ids.size() + " ids, the maximum is " + batchMaxRows);
+            }
+
+            Query query = new Query(tableCriteria(schemaName, projectUuid).and("_id").in(new LinkedHashSet<>(ids)));
+            applyProjection(query, requested);
+            Map<String, TableData> byId = new HashMap<>();
+            for (TableData tableData : mongoTemplate.find(query, TableData.class,
+                    tableCollectionResolver.collectionFor(schemaName, projectUuid))) {
+                byId.put(tableData.getId(), tableData);
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                TableData tableData = byId.get(id);
+                if (tableData != null) {
+                    results.add(toRecord(tableData, requested));
+                } else {
+                    Map<String, Object> missing = new LinkedHashMap<>();
+                    missing.put("id", id);
+                    missing.put("found", false);
+                    results.add(missing);
+                }
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requested", ids.size());
+            result.put("found", ids.stream().filter(byId::containsKey).count());
+            result.put("results", results);
+            return result;
+
+        } catch (Exception e) {
+            log.error("Failed to fetch records from table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to fetch records: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> deleteRecords(String schemaName, String projectUuid, List<String> ids) {
+        try {
+            if (ids == null || ids.isEmpty()) {
+                throw new RuntimeException("At least one id is required");
+            }
+            if (ids.size() > batchMaxRows) {
+                throw new RuntimeException("Request contains " + ids.size() + " ids, the maximum is " + batchMaxRows);
+            }
+
+            Query query = new Query(projectCriteria(schemaName, projectUuid).and("_id").in(ids));
+            long deleted = removeRecords(schemaName, projectUuid, query);
+
+            log.info("Deleted {}/{} records from table '{}' in project '{}'", deleted, ids.size(), schemaName, projectUuid);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requested", ids.size());
+            result.put("deleted", deleted);
+            return result;
+
+        } catch (Exception e) {
+            log.error("Failed to delete records from table '{}' in project '{}': {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to delete records: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> executeTransaction(String projectUuid, List<TransactionRequestDTO.Operation> operations) {
+        return executeTransactionWithUserValidation(null, projectUuid, operations);
+    }
+
+    public Map<String, Object> executeTransactionWithUserValidation(String userUuid, String projectUuid,
+                                                                    List<TransactionRequestDTO.Operation> operations) {
+        try {
+            if (operations == null || operations.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one operation is required");
+            }
+            if (operations.size() > transactionMaxOperations) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Transaction contains " + operations.size() + " operations, the maximum is " + transactionMaxOperations);
+            }
+
+            // User, project and every table are validated once, before the transaction starts
+            requireProjectAccess(userUuid, projectUuid);
+            Map<String, TableSchema> tables = new HashMap<>();
+            for (TableSchema tableSchema : getTablesByProjectId(projectUuid)) {
+                tables.put(tableSchema.getSchemaName(), tableSchema);
+            }
+            for (int i = 0; i < operations.size(); i++) {
+                String error = validateTransactionOperation(operations.get(i), tables);
+                if (error != null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Operation " + i + ": " + error);
+                }
+            }
+
+            List<Map<String, Object>> results;
+            try (ClientSession session = mongoTemplate.getMongoDatabaseFactory().getSession(
+                    ClientSessionOptions.builder().causallyConsistent(true).build())) {
+                MongoOperations transactional = mongoTemplate.withSession(session);
+                // withTransaction retries the whole body on transient errors and aborts on any exception
+                results = session.withTransaction(
+                        () -> applyTransactionOperations(transactional, projectUuid, operations, tables),
+                        TransactionOptions.builder().writeConcern(WriteConcern.MAJORITY).build());
+            }
+
+            log.info("Transaction with {} operations committed in project '{}'", operations.size(), projectUuid);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("committed", true);
+            result.put("operations", results.size());
+            result.put("results", results);
+            return result;
 
-            TableData tableData = tableDataOpt.get();
-            Map<String, Object> dataWithId = new HashMap<>(tableData.getData());
-            dataWithId.put("id", tableData.getId());
-            dataWithId.put("createdAt", tableData.getCreatedAt());
-            dataWithId.put("updatedAt", tableData.getUpdatedAt());
-            return dataWithId;
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error retrieving record by ID: " + e.getMessage());
-            throw new RuntimeException("Failed to retrieve record: " + e.getMessage(), e);
+            log.error("Transaction in project '{}' failed: {}", projectUuid, e.getMessage());
+            throw new RuntimeException("Transaction rolled back: " + e.getMessage(), e);
         }
     }
 
     @Override
-    public void updateRecord(String schemaName, String id, Map<String, Object> data) {
+    public Map<String, Object> updateMany(String schemaName, String projectUuid, String filter, Map<String, Object> set,
+                                          boolean dryRun, Integer limit) {
         try {
-            Optional<TableData> tableDataOpt = tableDataRepository.findById(id);
-            if (tableDataOpt.isEmpty() || !tableDataOpt.get().getSchemaName().equals(schemaName)) {
-                throw new RuntimeException("No record found with ID: " + id + " in table: " + schemaName);
+            TableSchema tableSchema = requireBulkTable(schemaName, projectUuid);
+            Criteria criteria = bulkCriteria(schemaName, projectUuid, filter, limit);
+            if (set == null || set.isEmpty()) {
+                throw new RuntimeException("At least one column to set is required");
             }
+            if (tableSchema.getTimeSeries() != null) {
+                throw new RuntimeException("Records of time-series table '" + schemaName + "' cannot be updated");
+            }
+            Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(tableSchema.getSchema());
+            Update update = new Update();
+            set.forEach((field, value) -> {
+                ColumnDefinition column = columns.get(field);
+                if (column == null) {
+                    throw new RuntimeException("Unknown column '" + field + "'");
+                }
+                if (!column.accepts(value)) {
+                    throw new RuntimeException("Value for '" + field + "' is not a valid " + column.baseType());
+                }
+                update.set("data." + field, value);
+            });
+            String error = expiryError(expiresAtFieldOf(tableSchema), set);
+            if (error != null) {
+                throw new RuntimeException(error);
+            }
+            setExpiry(update, expiresAtFieldOf(tableSchema), set);
+            update.set("updatedAt", LocalDateTime.now()).inc("version", 1);
 
-            TableData tableData = tableDataOpt.get();
-
-            // Update the data fields
-            Map<String, Object> updatedData = new HashMap<>(tableData.getData());
-            updatedData.putAll(data);
-
-            tableData.setData(updatedData);
-            tableData.updateTimestamp();
+            String collection = tableCollectionResolver.collectionFor(schemaName, projectUuid);
+            if (dryRun) {
+                return bulkResult(countMatching(criteria, limit, collection), "modified", 0, true);
+            }
 
-            tableDataRepository.save(tableData);
+            long matched = 0;
+            long modified = 0;
+            boolean notify = webhookService.hasSubscribers(projectUuid, schemaName, WebhookService.EVENT_UPDATE);
+            if (limit == null && !notify) {
+                // One server-side operation however many records match
+                UpdateResult result = mongoTemplate.updateMulti(new Query(criteria), update, TableData.class, collection);
+                matched = result.getMatchedCount();
+                modified = result.getModifiedCount();
+            } else {
+                // Walk the first `limit` matches by _id in chunks, so memory stays bounded; webhooks need the ids
+                // of the changed records, so with subscribers an unlimited update walks every match the same way
+                long max = limit != null ? limit : Long.MAX_VALUE;
+                Object lastId = null;
+                List<Object> ids;
+                while (matched < max
+                        && !(ids = nextIdChunk(criteria, lastId, (int) Math.min(max - matched, batchChunkSize), collection)).isEmpty()) {
+                    UpdateResult result = mongoTemplate.updateMulti(
+                            new Query(new Criteria().andOperator(criteria, Criteria.where("_id").in(ids))),
+                            update, TableData.class, collection);
+                    matched += result.getMatchedCount();
+                    modified += result.getModifiedCount();
+                    if (notify) {
+                        publish(projectUuid, schemaName, WebhookService.EVENT_UPDATE, mongoTemplate.find(
+                                new Query(tableCriteria(schemaName, projectUuid).and("_id").in(ids)), TableData.class, collection)
+                                .stream().map(TableRecords::toRecord).toList());
+                    }
+                    lastId = ids.get(ids.size() - 1);
+                }
+            }
 
-            System.out.println("Record updated successfully in table '" + schemaName + "' with ID: " + id);
+            log.info("updateMany on table '{}' in project '{}' modified {} of {} matching records",
+                    schemaName, projectUuid, modified, matched);
+            return bulkResult(matched, "modified", modified, false);
 
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (DuplicateKeyException e) {
+            // Records updated before the conflict keep their new values, as with any multi-document update
+            throw duplicateKeyConflict(schemaName, e);
         } catch (Exception e) {
-            System.err.println("Error updating record: " + e.getMessage());
-            throw new RuntimeException("Failed to update record: " + e.getMessage(), e);
+            log.error("updateMany on table '{}' in project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to update records: " + e.getMessage(), e);
         }
     }
 
     @Override
-    public void deleteRecord(String schemaName, String id) {
+    public Map<String, Object> deleteMany(String schemaName, String projectUuid, String filter, boolean dryRun, Integer limit) {
         try {
-            Optional<TableData> tableDataOpt = tableDataRepository.findById(id);
-            if (tableDataOpt.isEmpty() || !tableDataOpt.get().getSchemaName().equals(schemaName)) {
-                throw new RuntimeException("No record found with ID: " + id + " in table: " + schemaName);
+            requireBulkTable(schemaName, projectUuid);
+            Criteria criteria = bulkCriteria(schemaName, projectUuid, filter, limit);
+            String collection = tableCollectionResolver.collectionFor(schemaName, projectUuid);
+            if (dryRun) {
+                return bulkResult(countMatching(criteria, limit, collection), "deleted", 0, true);
             }
 
-            tableDataRepository.deleteById(id);
+            long deleted = 0;
+            if (limit == null) {
+                deleted = removeRecords(schemaName, projectUuid, new Query(criteria));
+            } else {
+                Object lastId = null;
+                List<Object> ids;
+                while (deleted < limit
+                        && !(ids = nextIdChunk(criteria, lastId, (int) Math.min(limit - deleted, batchChunkSize), collection)).isEmpty()) {
+                    deleted += removeRecords(schemaName, projectUuid,
+                            new Query(new Criteria().andOperator(criteria, Criteria.where("_id").in(ids))));
+                    lastId = ids.get(ids.size() - 1);
+                }
+            }
 
-            System.out.println("Record deleted successfully from table '" + schemaName + "' with ID: " + id);
+            log.info("deleteMany on table '{}' in project '{}' deleted {} records", schemaName, projectUuid, deleted);
+            return bulkResult(deleted, "deleted", deleted, false);
 
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error deleting record: " + e.getMessage());
-            throw new RuntimeException("Failed to delete record: " + e.getMessage(), e);
+            log.error("deleteMany on table '{}' in project '{}' failed: {}", schemaName, projectUuid, e.getMessage());
+            throw new RuntimeException("Failed to delete records: " + e.getMessage(), e);
         }
     }
 
@@ -343,7 +1880,11 @@ public class TableServiceImpl implements TableService {
             }
 
             tableSchema.setRelationships(entityRelationships);
+            assignStorage(tableSchema);
+            // Index failures are reported before the table exists
+            tableIndexService.syncTableIndexes(tableSchema);
             tableSchemaRepository.save(tableSchema);
+            tableCollectionResolver.evict(schemaName, projectUuid);
 
             // AUTO-GENERATE ENDPOINTS FOR THE NEW TABLE
             dynamicEndpointService.generateEndpointsForTable(tableSchema);
@@ -406,14 +1947,13 @@ public class TableServiceImpl implements TableService {
             }
 
             // Get the main record by searching in the specific table and project
-            Optional<TableData> tableDataOpt = tableDataRepository.findByIdAndSchemaNameAndProjectId(
-                id, schemaName, projectId
-            );
-            if (tableDataOpt.isEmpty()) {
+            TableData tableData = mongoTemplate.findOne(
+                new Query(tableCriteria(schemaName, projectId).and("_id").is(id)),
+                TableData.class, tableCollectionResolver.collectionFor(tableSchema));
+            if (tableData == null) {
                 return null;
             }
 
-            TableData tableData = tableDataOpt.get();
             Map<String, Object> record = new HashMap<>(tableData.getData());
             record.put("id", tableData.getId());
             record.put("createdAt", tableData.getCreatedAt());
@@ -436,7 +1976,7 @@ public class TableServiceImpl implements TableService {
                 if (foreignKeyValue != null) {
                     try {
                         // Find related record in the same project
-                        List<TableData> relatedRecords = tableDataRepository.findBySchemaNameAndProjectId(
+                        List<TableData> relatedRecords = findTableRecords(
                             rel.getReferencedTable(), projectId);
 
                         System.out.println("DEBUG: Found " + relatedRecords.size() + " records in table '" + rel.getReferencedTable() + "'");
@@ -555,6 +2095,7 @@ public class TableServiceImpl implements TableService {
 
             tableSchema.getRelationships().add(entityRel);
             tableSchema.setUpdatedAt(LocalDateTime.now());
+            tableIndexService.syncTableIndexes(tableSchema);
             tableSchemaRepository.save(tableSchema);
 
             System.out.println("Relationship added successfully to table '" + schemaName + "'");
@@ -585,6 +2126,7 @@ public class TableServiceImpl implements TableService {
             }
 
             tableSchema.setUpdatedAt(LocalDateTime.now());
+            tableIndexService.syncTableIndexes(tableSchema);
             tableSchemaRepository.save(tableSchema);
 
             System.out.println("Relationship removed successfully from table '" + schemaName + "'");
@@ -603,7 +2145,7 @@ public class TableServiceImpl implements TableService {
                 throw new RuntimeException("Table '" + schemaName + "' does not exist in project " + projectId);
             }
 
-            List<TableData> records = tableDataRepository.findBySchemaNameAndProjectId(schemaName, projectId);
+            List<TableData> records = findTableRecords(schemaName, projectId);
             List<Map<String, Object>> result = new ArrayList<>();
 
             for (TableData record : records) {
@@ -618,7 +2160,7 @@ public class TableServiceImpl implements TableService {
                         if (joinTables.contains(rel.getReferencedTable())) {
                             Object foreignKeyValue = record.getData().get(rel.getForeignKeyColumn());
                             if (foreignKeyValue != null) {
-                                List<TableData> relatedRecords = tableDataRepository.findBySchemaNameAndProjectId(
+                                List<TableData> relatedRecords = findTableRecords(
                                     rel.getReferencedTable(), projectId);
 
                                 Map<String, Object> relatedRecord = relatedRecords.stream()
@@ -669,7 +2211,7 @@ public class TableServiceImpl implements TableService {
                 return true; // No relationships to validate
             }
 
-            List<TableData> records = tableDataRepository.findBySchemaNameAndProjectId(schemaName, projectId);
+            List<TableData> records = findTableRecords(schemaName, projectId);
 
             for (TableSchema.TableRelationship rel : tableSchema.getRelationships()) {
                 // Check if referenced table exists
@@ -680,7 +2222,7 @@ public class TableServiceImpl implements TableService {
                 }
 
                 // Check referential integrity for all records
-                List<TableData> referencedRecords = tableDataRepository.findBySchemaNameAndProjectId(
+                List<TableData> referencedRecords = findTableRecords(
                     rel.getReferencedTable(), projectId);
 
                 for (TableData record : records) {
@@ -713,4 +2255,826 @@ public class TableServiceImpl implements TableService {
             return false;
         }
     }
+
+    // Validates user, project ownership and table existence before any write
+    private TableSchema requireWritableTable(String userUuid, String schemaName, String projectUuid) {
+        requireProjectAccess(userUuid, projectUuid);
+
+        // Verify table schema exists
+        TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+        if (tableSchema == null) {
+            throw new RuntimeException("Table '" + schemaName + "' does not exist in project " + projectUuid);
+        }
+        return tableSchema;
+    }
+
+    private void requireProjectAccess(String userUuid, String projectUuid) {
+        if (projectUuid == null) {
+            throw new RuntimeException("Project UUID is required");
+        }
+
+        // Validate user exists (if userUuid provided)
+        if (userUuid != null) {
+            userRepository.findByUuid(userUuid)
+                .orElseThrow(() -> new RuntimeException("User with UUID " + userUuid + " not found"));
+        }
+
+        // Validate project exists and belongs to user (if userUuid provided)
+        Optional<Projects> projectOpt = projectRepository.findByProjectUuid(projectUuid);
+        if (projectOpt.isEmpty()) {
+            throw new RuntimeException("Project with UUID " + projectUuid + " not found");
+        }
+
+        Projects project = projectOpt.get();
+        if (userUuid != null && !project.getUserUuid().equals(userUuid)) {
+            throw new RuntimeException("Project " + projectUuid + " does not belong to user " + userUuid);
+        }
+    }
+
+    // Returns an error message for rows MongoDB would reject, or null when the row is fine
+    private String validateRow(Map<String, Object> row) {
+        if (row == null || row.isEmpty()) {
+            return "Row must be a non-empty object";
+        }
+        for (String key : row.keySet()) {
+            if (key == null || key.isEmpty() || key.startsWith("$") || key.contains(".")) {
+                return "Invalid column name: " + key;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> batchResult(int index, String status, String id, String error) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("status", status);
+        if (id != null) {
+            result.put("id", id);
+        }
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+
+    // Time-series tables always get their own time-series collection, keyed on the time and meta columns
+    private void createTimeSeriesCollection(TableSchema tableSchema, CreateTableRequestDTO.TimeSeries request) {
+        Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(tableSchema.getSchema());
+        ColumnDefinition timeColumn = request.getTimeField() != null ? columns.get(request.getTimeField()) : null;
+        if (timeColumn == null || timeColumn.kind() != ColumnDefinition.Kind.DATE) {
+            throw new RuntimeException("timeSeries.timeField must name a DATE, DATETIME or TIMESTAMP column of the table");
+        }
+        String metaField = request.getMetaField();
+        if (metaField != null && (!columns.containsKey(metaField) || metaField.equals(request.getTimeField()))) {
+            throw new RuntimeException("timeSeries.metaField must name another column of the table");
+        }
+        String granularity = request.getGranularity() != null
+                ? request.getGranularity().toUpperCase(Locale.ROOT)
+                : Granularity.SECONDS.name();
+        if (!Set.of(Granularity.SECONDS.name(), Granularity.MINUTES.name(), Granularity.HOURS.name()).contains(granularity)) {
+            throw new RuntimeException("timeSeries.granularity must be SECONDS, MINUTES or HOURS");
+        }
+        // Time-series collections support neither unique nor text indexes
+        for (ColumnDefinition column : columns.values()) {
+            if (column.unique() || column.searchable()) {
+                throw new RuntimeException("Column '" + column.name() + "' cannot be UNIQUE or SEARCHABLE in a time-series table");
+            }
+        }
+
+        TableSchema.TimeSeries timeSeries = new TableSchema.TimeSeries();
+        timeSeries.setTimeField(request.getTimeField());
+        timeSeries.setMetaField(metaField);
+        timeSeries.setGranularity(granularity);
+        tableSchema.setTimeSeries(timeSeries);
+        String collection = tableCollectionResolver.dedicatedCollectionName(tableSchema.getSchemaName(), tableSchema.getProjectId());
+        tableSchema.setStorageCollection(collection);
+
+        CollectionOptions.TimeSeriesOptions options = CollectionOptions.TimeSeriesOptions
+                .timeSeries(TableSchema.TimeSeries.TIME_FIELD)
+                .granularity(Granularity.valueOf(granularity));
+        if (metaField != null) {
+            options = options.metaField(TableSchema.TimeSeries.META_FIELD);
+        }
+        mongoTemplate.createCollection(collection, CollectionOptions.empty().timeSeries(options));
+    }
+
+    // Copies the time and meta columns of a time-series row into the top-level fields the collection buckets on;
+    // a row without a time is stamped with the current time
+    private String stampTimeSeries(TableSchema tableSchema, TableData tableData) {
+        TableSchema.TimeSeries timeSeries = tableSchema.getTimeSeries();
+        if (timeSeries == null) {
+            return null;
+        }
+        Map<String, Object> data = tableData.getData();
+        if (data == null) {
+            return "Row must be a non-empty object";
+        }
+        Object time = data.get(timeSeries.getTimeField());
+        Instant timestamp;
+        if (time == null) {
+            timestamp = Instant.now();
+            data.put(timeSeries.getTimeField(), timestamp.toString());
+        } else {
+            timestamp = time instanceof String text ? ColumnDefinition.toInstant(text) : null;
+            if (timestamp == null) {
+                return "'" + timeSeries.getTimeField() + "' must be an ISO-8601 date or date-time";
+            }
+        }
+        tableData.setTimestamp(timestamp);
+        if (timeSeries.getMetaField() != null) {
+            tableData.setMeta(data.get(timeSeries.getMetaField()));
+        }
+        return null;
+    }
+
+    private String expiresAtFieldOf(TableSchema tableSchema) {
+        return tableSchema.getTtl() != null ? tableSchema.getTtl().getExpiresAtField() : null;
+    }
+
+    // Read from the schema like the insert path, not from the cached route, so a TTL change applies at once.
+    // Unscoped writes cannot tell the tables apart, an expiry column is only honoured when they agree on it
+    private String expiresAtFieldOf(String schemaName, String projectUuid) {
+        List<TableSchema> tables = projectUuid != null && !projectUuid.isEmpty()
+                ? tableSchemaRepository.findBySchemaNameAndProjectId(schemaName, projectUuid).map(List::of).orElse(List.of())
+                : tableSchemaRepository.findBySchemaName(schemaName);
+        List<String> expiresAtFields = tables.stream().map(this::expiresAtFieldOf).distinct().toList();
+        return expiresAtFields.size() == 1 ? expiresAtFields.get(0) : null;
+    }
+
+    // TTL indexes only act on BSON dates, so a row's expiry column must be a parseable date (or null: never expires)
+    private String expiryError(String expiresAtField, Map<String, Object> row) {
+        if (expiresAtField == null || row == null || row.get(expiresAtField) == null) {
+            return null;
+        }
+        return row.get(expiresAtField) instanceof String text && ColumnDefinition.toInstant(text) != null
+                ? null
+                : "'" + expiresAtField + "' must be an ISO-8601 date or date-time";
+    }
+
+    // Mirrors the expiry column of a new record into the top-level date its TTL index expires on
+    private String stampExpiry(TableSchema tableSchema, TableData tableData) {
+        String expiresAtField = expiresAtFieldOf(tableSchema);
+        String error = expiryError(expiresAtField, tableData.getData());
+        if (error == null && expiresAtField != null && tableData.getData().get(expiresAtField) != null) {
+            tableData.setExpiresAt(ColumnDefinition.toInstant((String) tableData.getData().get(expiresAtField)));
+        }
+        return error;
+    }
+
+    // Same for updates that set the expiry column; the row has been checked by expiryError
+    private void setExpiry(Update update, String expiresAtField, Map<String, Object> row) {
+        if (expiresAtField == null || !row.containsKey(expiresAtField)) {
+            return;
+        }
+        Object value = row.get(expiresAtField);
+        if (value == null) {
+            update.unset(TableSchema.Ttl.EXPIRES_AT_FIELD);
+        } else {
+            update.set(TableSchema.Ttl.EXPIRES_AT_FIELD, Date.from(ColumnDefinition.toInstant((String) value)));
+        }
+    }
+
+    // Fills the mirrored expiry date of existing records in one server-side pass; values that are not dates never expire
+    private long backfillExpiry(TableSchema tableSchema) {
+        String column = "$data." + tableSchema.getTtl().getExpiresAtField();
+        Document filter = new Document("projectId", tableSchema.getProjectId()).append("schemaName", tableSchema.getSchemaName());
+        Document set = new Document("$set", new Document(TableSchema.Ttl.EXPIRES_AT_FIELD,
+                new Document("$dateFromString", new Document("dateString", column)
+                        .append("onError", null)
+                        .append("onNull", null))));
+        return mongoTemplate.getCollection(tableCollectionResolver.collectionFor(tableSchema))
+                .updateMany(filter, List.of(set))
+                .getModifiedCount();
+    }
+
+    private TableSchema requireTimeSeriesTable(String schemaName, String projectUuid) {
+        if (projectUuid == null || projectUuid.isEmpty()) {
+            throw new RuntimeException("projectId is required");
+        }
+        TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+        if (tableSchema == null) {
+            throw new RuntimeException("Table '" + schemaName + "' not found");
+        }
+        if (tableSchema.getTimeSeries() == null) {
+            throw new RuntimeException("Table '" + schemaName + "' is not a time-series table");
+        }
+        return tableSchema;
+    }
+
+    // Table and filter criteria plus from <= time < to and the series; bounds on the time field let MongoDB skip whole buckets
+    private Criteria timeSeriesCriteria(TableSchema tableSchema, Instant from, Instant to, String meta, List<String> filters) {
+        List<Criteria> all = new ArrayList<>();
+        all.add(filteredCriteria(tableSchema.getSchemaName(), tableSchema.getProjectId(), filters));
+        if (from != null || to != null) {
+            Criteria time = Criteria.where(TableSchema.TimeSeries.TIME_FIELD);
+            if (from != null) {
+                time = time.gte(Date.from(from));
+            }
+            if (to != null) {
+                time = time.lt(Date.from(to));
+            }
+            all.add(time);
+        }
+        if (meta != null) {
+            String metaField = tableSchema.getTimeSeries().getMetaField();
+            if (metaField == null) {
+                throw new RuntimeException("Table '" + tableSchema.getSchemaName() + "' has no meta field");
+            }
+            ColumnDefinition column = ColumnDefinition.parse(metaField, tableSchema.getSchema().get(metaField));
+            Object value;
+            try {
+                value = TableFilter.convertValue(column, meta);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("'" + meta + "' is not a valid " + column.baseType() + " value for '" + metaField + "'");
+            }
+            all.add(Criteria.where(TableSchema.TimeSeries.META_FIELD).is(value));
+        }
+        return all.size() == 1 ? all.get(0) : new Criteria().andOperator(all.toArray(new Criteria[0]));
+    }
+
+    private Instant parseTimeBound(String name, String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Instant instant = ColumnDefinition.toInstant(text.trim());
+        if (instant == null) {
+            throw new RuntimeException(name + " must be an ISO-8601 date or date-time");
+        }
+        return instant;
+    }
+
+    // New tables get their own collection when app.tables.storage-mode is "dedicated"
+    // A table with UNIQUE or SEARCHABLE columns always gets its own collection: unique indexes are per table and would
+    // add up to MongoDB's 64-index limit in the shared collection, and only dedicated collections have a text index
+    private void assignStorage(TableSchema tableSchema) {
+        boolean ownIndexes = ColumnDefinition.parseSchema(tableSchema.getSchema()).values().stream()
+                .anyMatch(column -> column.unique() || column.searchable());
+        if (tableCollectionResolver.isDedicatedMode() || ownIndexes) {
+            tableSchema.setStorageCollection(tableCollectionResolver.dedicatedCollectionName(
+                    tableSchema.getSchemaName(), tableSchema.getProjectId()));
+        }
+    }
+
+    private List<TableData> findTableRecords(String schemaName, String projectUuid) {
+        return mongoTemplate.find(new Query(tableCriteria(schemaName, projectUuid)), TableData.class,
+                tableCollectionResolver.collectionFor(schemaName, projectUuid));
+    }
+
+    // Deletes from the table's collection; while the table is being migrated its other copy is cleaned up too
+    private long removeRecords(String schemaName, String projectUuid, Query query) {
+        TableCollectionResolver.Route route = tableCollectionResolver.routeFor(schemaName, projectUuid);
+        long deleted = mongoTemplate.remove(query, TableData.class, route.collection()).getDeletedCount();
+        if (route.mirrorCollection() != null) {
+            mongoTemplate.remove(query, TableData.class, route.mirrorCollection());
+        }
+        return deleted;
+    }
+
+    // Base filter shared by every read on a table's records
+    private Criteria tableCriteria(String schemaName, String projectUuid) {
+        Criteria criteria = Criteria.where("schemaName").is(schemaName);
+        if (projectUuid != null && !projectUuid.isEmpty()) {
+            criteria = criteria.and("projectId").is(projectUuid);
+        }
+        return criteria;
+    }
+
+    // Writes that remove records are never allowed across projects: the table name alone is not unique
+    private Criteria projectCriteria(String schemaName, String projectUuid) {
+        if (projectUuid == null || projectUuid.isEmpty()) {
+            throw new RuntimeException("projectId is required");
+        }
+        return tableCriteria(schemaName, projectUuid);
+    }
+
+    // Maps a client-facing column name to its path inside the stored document
+    private String resolveFieldPath(String field) {
+        if (field == null || field.isBlank() || field.startsWith("$") || field.contains("..")) {
+            throw new RuntimeException("Invalid field name: " + field);
+        }
+        if ("id".equals(field)) {
+            return "_id";
+        }
+        if (VERSION_FIELD.equals(field)) {
+            return "version";
+        }
+        if (RECORD_FIELDS.contains(field)) {
+            return field;
+        }
+        return "data." + field;
+    }
+
+    // Parses "property(,asc|desc)"; _id is always appended so that pages are stable
+    private Sort parseSort(String sort) {
+        Sort idSort = Sort.by(Sort.Direction.ASC, "_id");
+        if (sort == null || sort.isBlank()) {
+            return idSort;
+        }
+
+        String[] parts = sort.split(",");
+        String property = parts[0].trim();
+        Sort.Direction direction = Sort.Direction.ASC;
+        if (parts.length > 1) {
+            direction = Sort.Direction.fromOptionalString(parts[1].trim())
+                    .orElseThrow(() -> new RuntimeException("Invalid sort direction: " + parts[1].trim()));
+        }
+
+        String path = resolveFieldPath(property);
+        Sort requested = Sort.by(direction, path);
+        return "_id".equals(path) ? requested : requested.and(idSort);
+    }
+
+    // Runs one findAndModify on a record, bumping version/updatedAt; 404 when the record is missing,
+    // 412 when expectedVersion is given and no longer matches
+    private TableData modifyRecord(String schemaName, String projectUuid, String id, Update update, Long expectedVersion) {
+        return modifyRecord(mongoTemplate, schemaName, projectUuid, id, update, expectedVersion);
+    }
+
+    private TableData modifyRecord(MongoOperations operations, String schemaName, String projectUuid, String id,
+                                   Update update, Long expectedVersion) {
+        Criteria criteria = tableCriteria(schemaName, projectUuid).and("_id").is(id);
+        if (expectedVersion != null) {
+            criteria = criteria.andOperator(versionCriteria(expectedVersion));
+        }
+        update.set("updatedAt", LocalDateTime.now()).inc("version", 1);
+
+        TableCollectionResolver.Route route = tableCollectionResolver.routeFor(schemaName, projectUuid);
+        if (route.timeSeries()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Records of time-series table '" + schemaName + "' cannot be updated");
+        }
+        String collection = route.collection();
+        TableData updated;
+        try {
+            updated = operations.findAndModify(new Query(criteria), update,
+                    FindAndModifyOptions.options().returnNew(true), TableData.class, collection);
+        } catch (DuplicateKeyException e) {
+            throw duplicateKeyConflict(schemaName, e);
+        }
+
+        if (updated == null) {
+            boolean exists = expectedVersion != null
+                    && operations.exists(new Query(tableCriteria(schemaName, projectUuid).and("_id").is(id)), TableData.class, collection);
+            if (exists) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                        "Record " + id + " was modified by another request (expected version " + expectedVersion + ")");
+            }
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "No record found with ID: " + id + " in table: " + schemaName);
+        }
+        return updated;
+    }
+
+    // Validates each column of one operator and lets the caller add it to the update; a column may only
+    // appear in one operator, as MongoDB rejects conflicting updates on the same path
+    private void forEachOperation(Map<String, Object> fields, String operator, Map<String, ColumnDefinition> columns,
+                                  Set<String> touched, BiFunction<ColumnDefinition, Object, String> apply) {
+        if (fields == null) {
+            return;
+        }
+        fields.forEach((field, value) -> {
+            ColumnDefinition column = columns.get(field);
+            if (column == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, operator + ": unknown column '" + field + "'");
+            }
+            if (!touched.add(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Column '" + field + "' is used by more than one operation");
+            }
+            String error = apply.apply(column, value);
+            if (error != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, operator + " on '" + field + "': " + error);
+            }
+        });
+    }
+
+    private String comparableValueError(String operator, ColumnDefinition column, Object value) {
+        if (column.kind() == ColumnDefinition.Kind.BOOLEAN || column.kind() == ColumnDefinition.Kind.ARRAY
+                || column.isGeo()) {
+            return operator + " cannot be used on " + column.baseType() + " columns";
+        }
+        if (value == null || !column.accepts(value)) {
+            return "value is not a valid " + column.baseType();
+        }
+        return null;
+    }
+
+    private String validateTransactionOperation(TransactionRequestDTO.Operation operation, Map<String, TableSchema> tables) {
+        if (operation == null || operation.getOp() == null) {
+            return "op is required (insert, update or delete)";
+        }
+        if (operation.getTable() == null || !tables.containsKey(operation.getTable())) {
+            return "table '" + operation.getTable() + "' does not exist in the project";
+        }
+        TableSchema.StorageMigration migration = tables.get(operation.getTable()).getStorageMigration();
+        if (migration != null && migration.inProgress()) {
+            return "table '" + operation.getTable() + "' is being migrated";
+        }
+        // MongoDB does not allow writes to time-series collections inside transactions
+        if (tables.get(operation.getTable()).getTimeSeries() != null) {
+            return "table '" + operation.getTable() + "' is a time-series table and cannot be written in a transaction";
+        }
+        String expiresAtField = expiresAtFieldOf(tables.get(operation.getTable()));
+        switch (operation.getOp().toLowerCase()) {
+            case "insert": {
+                String error = validateRow(operation.getData());
+                return error != null ? error : expiryError(expiresAtField, operation.getData());
+            }
+            case "update": {
+                if (operation.getId() == null) {
+                    return "id is required for update";
+                }
+                String error = validateRow(operation.getData());
+                return error != null ? error : expiryError(expiresAtField, operation.getData());
+            }
+            case "delete":
+                return operation.getId() == null ? "id is required for delete" : null;
+            default:
+                return "unknown op '" + operation.getOp() + "', expected insert, update or delete";
+        }
+    }
+
+    private List<Map<String, Object>> applyTransactionOperations(MongoOperations transactional, String projectUuid,
+                                                                 List<TransactionRequestDTO.Operation> operations,
+                                                                 Map<String, TableSchema> tables) {
+        List<Map<String, Object>> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            TransactionRequestDTO.Operation operation = operations.get(i);
+            String table = operation.getTable();
+            String collection = tableCollectionResolver.collectionFor(tables.get(table));
+            String op = operation.getOp().toLowerCase();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            result.put("op", op);
+            result.put("table", table);
+            try {
+                switch (op) {
+                    case "insert": {
+                        TableData tableData = new TableData(table, projectUuid, operation.getData());
+                        tableData.setId(operation.getId() != null ? operation.getId() : new ObjectId().toHexString());
+                        stampExpiry(tables.get(table), tableData);
+                        try {
+                            transactional.insert(tableData, collection);
+                        } catch (DuplicateKeyException e) {
+                            throw duplicateKeyConflict(table, e);
+                        }
+                        // Outbox events commit or roll back with the records
+                        webhookService.enqueue(transactional, projectUuid, table, WebhookService.EVENT_INSERT,
+                                List.of(toRecord(tableData)));
+                        result.put("id", tableData.getId());
+                        result.put("version", tableData.currentVersion());
+                        break;
+                    }
+                    case "update": {
+                        Update update = new Update();
+                        operation.getData().forEach((field, value) -> update.set("data." + field, value));
+                        setExpiry(update, expiresAtFieldOf(tables.get(table)), operation.getData());
+                        TableData updated = modifyRecord(transactional, table, projectUuid, operation.getId(), update,
+                                operation.getExpectedVersion());
+                        webhookService.enqueue(transactional, projectUuid, table, WebhookService.EVENT_UPDATE,
+                                List.of(toRecord(updated)));
+                        result.put("id", updated.getId());
+                        result.put("version", updated.currentVersion());
+                        break;
+                    }
+                    default: {
+                        Criteria criteria = tableCriteria(table, projectUuid).and("_id").is(operation.getId());
+                        if (operation.getExpectedVersion() != null) {
+                            criteria = criteria.andOperator(versionCriteria(operation.getExpectedVersion()));
+                        }
+                        if (transactional.remove(new Query(criteria), TableData.class, collection).getDeletedCount() == 0) {
+                            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                    "No record found with ID: " + operation.getId() + " in table: " + table
+                                            + (operation.getExpectedVersion() != null ? " at version " + operation.getExpectedVersion() : ""));
+                        }
+                        result.put("id", operation.getId());
+                        break;
+                    }
+                }
+            } catch (ResponseStatusException e) {
+                throw new ResponseStatusException(e.getStatusCode(), "Operation " + i + ": " + e.getReason());
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    // Hands written records to the webhook outbox; the write already happened, so a failing outbox write is logged
+    // instead of failing the request (transactions enqueue within the transaction instead)
+    private void publish(String projectUuid, String schemaName, String event, List<Map<String, Object>> records) {
+        try {
+            webhookService.enqueue(mongoTemplate, projectUuid, schemaName, event, records);
+        } catch (Exception e) {
+            log.error("Could not queue {} webhook events for table '{}' in project '{}': {}",
+                    records.size(), schemaName, projectUuid, e.getMessage());
+        }
+    }
+
+    // 409 naming the UNIQUE column that already holds the written value
+    private ResponseStatusException duplicateKeyConflict(String schemaName, DuplicateKeyException e) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, duplicateKeyMessage(schemaName, e.getMessage()));
+    }
+
+    private String bulkErrorMessage(String schemaName, BulkWriteError error) {
+        return error.getCode() == DUPLICATE_KEY_CODE ? duplicateKeyMessage(schemaName, error.getMessage()) : error.getMessage();
+    }
+
+    private String duplicateKeyMessage(String schemaName, String mongoMessage) {
+        String column = tableIndexService.uniqueColumnOf(mongoMessage);
+        if (column != null) {
+            return "Column '" + column + "' must be unique: a record with the same value already exists in table '" + schemaName + "'";
+        }
+        return "A record with the same key already exists in table '" + schemaName + "'";
+    }
+
+    private TableSchema requireNaturalKey(String schemaName, String projectUuid) {
+        if (projectUuid == null || projectUuid.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "projectId is required");
+        }
+        TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+        if (tableSchema == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Table '" + schemaName + "' not found");
+        }
+        if (tableSchema.getNaturalKey() == null || tableSchema.getNaturalKey().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Table '" + schemaName + "' has no natural key");
+        }
+        return tableSchema;
+    }
+
+    private String naturalKeyError(TableSchema tableSchema, Map<String, Object> row) {
+        for (String column : tableSchema.getNaturalKey()) {
+            if (row.get(column) == null) {
+                return "Natural key column '" + column + "' is missing";
+            }
+        }
+        return null;
+    }
+
+    private Query naturalKeyQuery(TableSchema tableSchema, Map<String, Object> row) {
+        Criteria criteria = tableCriteria(tableSchema.getSchemaName(), tableSchema.getProjectId());
+        for (String column : tableSchema.getNaturalKey()) {
+            criteria = criteria.and("data." + column).is(row.get(column));
+        }
+        return new Query(criteria);
+    }
+
+    // Stored records matching the natural keys of the rows, by natural key values; one query for the whole chunk
+    private Map<List<Object>, TableData> findByNaturalKeys(TableSchema tableSchema, List<Map<String, Object>> rows,
+                                                           String collection) {
+        if (rows.isEmpty()) {
+            return Map.of();
+        }
+        List<Criteria> keys = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Criteria key = null;
+            for (String column : tableSchema.getNaturalKey()) {
+                key = key == null ? Criteria.where("data." + column).is(row.get(column)) : key.and("data." + column).is(row.get(column));
+            }
+            keys.add(key);
+        }
+        Query query = new Query(tableCriteria(tableSchema.getSchemaName(), tableSchema.getProjectId())
+                .orOperator(keys.toArray(new Criteria[0])));
+        Map<List<Object>, TableData> records = new HashMap<>();
+        for (TableData record : mongoTemplate.find(query, TableData.class, collection)) {
+            records.put(naturalKeyOf(tableSchema, record.getData()), record);
+        }
+        return records;
+    }
+
+    private List<Object> naturalKeyOf(TableSchema tableSchema, Map<String, Object> values) {
+        List<Object> key = new ArrayList<>();
+        for (String column : tableSchema.getNaturalKey()) {
+            key.add(values != null ? values.get(column) : null);
+        }
+        return key;
+    }
+
+    // Sets every supplied column; projectId, schemaName and the key columns come from the query on insert
+    // A pipeline update, so a record created by the upsert starts at version 0 like insertData while an
+    // existing one is incremented; a classic update cannot both $setOnInsert and $inc the same field.
+    // Column values are wrapped in $literal so strings starting with '$' are not read as field paths.
+    private AggregationUpdate upsertUpdate(TableSchema tableSchema, Map<String, Object> row) {
+        Date now = Date.from(LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant());
+        Document set = new Document("version", new Document("$cond", List.of(
+                        new Document("$eq", List.of(new Document("$type", "$createdAt"), "missing")),
+                        0L,
+                        new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)))))
+                .append("createdAt", new Document("$ifNull", List.of("$createdAt", now)))
+                .append("updatedAt", now);
+        row.forEach((field, value) -> set.append("data." + field, new Document("$literal", value)));
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(context -> new Document("$set", set));
+        String expiresAtField = expiresAtFieldOf(tableSchema);
+        if (expiresAtField != null && row.containsKey(expiresAtField)) {
+            Object value = row.get(expiresAtField);
+            if (value == null) {
+                stages.add(context -> new Document("$unset", TableSchema.Ttl.EXPIRES_AT_FIELD));
+            } else {
+                Date expiresAt = Date.from(ColumnDefinition.toInstant((String) value));
+                set.append(TableSchema.Ttl.EXPIRES_AT_FIELD, expiresAt);
+            }
+        }
+        return AggregationUpdate.from(stages);
+    }
+
+    // Table a filter-based bulk change applies to; an unknown table is a 404 rather than a failed filter
+    private TableSchema requireBulkTable(String schemaName, String projectUuid) {
+        projectCriteria(schemaName, projectUuid);
+        TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+        if (tableSchema == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Table '" + schemaName + "' not found");
+        }
+        return tableSchema;
+    }
+
+    // Filter-based bulk changes are always scoped to one table in one project and need an explicit filter
+    private Criteria bulkCriteria(String schemaName, String projectUuid, String filter, Integer limit) {
+        projectCriteria(schemaName, projectUuid);
+        if (filter == null || filter.isBlank()) {
+            throw new RuntimeException("A filter is required; drop the table to remove every record");
+        }
+        if (limit != null && limit <= 0) {
+            throw new RuntimeException("limit must be positive");
+        }
+        return filteredCriteria(schemaName, projectUuid, List.of(filter));
+    }
+
+    private long countMatching(Criteria criteria, Integer limit, String collection) {
+        Query query = new Query(criteria);
+        if (limit != null) {
+            query.limit(limit);
+        }
+        return mongoTemplate.count(query, TableData.class, collection);
+    }
+
+    // Next chunk of matching ids after lastId (null for the first), in _id order
+    private List<Object> nextIdChunk(Criteria criteria, Object lastId, int size, String collection) {
+        Criteria chunkCriteria = lastId == null ? criteria
+                : new Criteria().andOperator(criteria, Criteria.where("_id").gt(lastId));
+        Query query = new Query(chunkCriteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(size);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, collection).stream()
+                .map(document -> document.get("_id"))
+                .toList();
+    }
+
+    private Map<String, Object> bulkResult(long matched, String affectedKey, long affected, boolean dryRun) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("matched", matched);
+        result.put(affectedKey, affected);
+        result.put("dryRun", dryRun);
+        return result;
+    }
+
+    // Schema of the table a request addresses; without a projectId the table name must be unambiguous
+    private TableSchema resolveTableSchema(String schemaName, String projectUuid) {
+        if (projectUuid != null && !projectUuid.isEmpty()) {
+            return getTableByNameAndProject(schemaName, projectUuid);
+        }
+        List<TableSchema> tables = tableSchemaRepository.findBySchemaName(schemaName);
+        if (tables.size() > 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "projectId is required: table '" + schemaName + "' exists in several projects");
+        }
+        return tables.isEmpty() ? null : tables.get(0);
+    }
+
+    // Table criteria narrowed by the caller's filter expressions, type-checked against the table's columns
+    private Criteria filteredCriteria(String schemaName, String projectUuid, List<String> filters) {
+        Criteria criteria = tableCriteria(schemaName, projectUuid);
+        if (filters == null || filters.isEmpty()) {
+            return criteria;
+        }
+
+        TableSchema tableSchema = resolveTableSchema(schemaName, projectUuid);
+        if (tableSchema == null) {
+            throw new RuntimeException("Table '" + schemaName + "' not found");
+        }
+
+        Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(tableSchema.getSchema());
+        List<Criteria> all = new ArrayList<>();
+        all.add(criteria);
+        for (String filter : filters) {
+            all.add(TableFilter.compile(filter, columns));
+        }
+        return new Criteria().andOperator(all.toArray(new Criteria[0]));
+    }
+
+    // Field path of a column in an aggregation: data.<column>, or a record timestamp (createdAt, updatedAt and
+    // the time field of time-series tables)
+    private String aggregatePath(TableSchema tableSchema, Map<String, ColumnDefinition> columns, String column) {
+        ColumnDefinition definition = column != null ? columns.get(column) : null;
+        if (definition != null) {
+            if (definition.isGeo()) {
+                throw new RuntimeException("Column '" + column + "' is a " + definition.baseType() + " and cannot be aggregated");
+            }
+            return "$data." + column;
+        }
+        if ("createdAt".equals(column) || "updatedAt".equals(column)
+                || (tableSchema.getTimeSeries() != null && TableSchema.TimeSeries.TIME_FIELD.equals(column))) {
+            return "$" + column;
+        }
+        throw new RuntimeException("Unknown column '" + column + "'");
+    }
+
+    // Dates leave an aggregation as ISO-8601 instants, like the time buckets of time-series tables
+    private Object aggregateValue(Object value) {
+        return value instanceof Date date ? date.toInstant().toString() : value;
+    }
+
+    // Columns a distinct / facet query may group by: declared in the table and not POINT / GEOMETRY
+    private List<ColumnDefinition> groupableColumns(String schemaName, String projectUuid, List<String> columns) {
+        TableSchema tableSchema = resolveTableSchema(schemaName, projectUuid);
+        if (tableSchema == null) {
+            throw new RuntimeException("Table '" + schemaName + "' not found");
+        }
+        Map<String, ColumnDefinition> definitions = ColumnDefinition.parseSchema(tableSchema.getSchema());
+        List<ColumnDefinition> groupable = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            ColumnDefinition definition = definitions.get(column);
+            if (definition == null) {
+                throw new RuntimeException("Unknown column '" + column + "'");
+            }
+            if (definition.isGeo()) {
+                throw new RuntimeException("Column '" + column + "' is a " + definition.baseType() + " and cannot be grouped by");
+            }
+            groupable.add(definition);
+        }
+        return groupable;
+    }
+
+    // Keyset pages must be a range scan: sort by id, or within a project by createdAt or an indexed column
+    private void requireKeysetIndex(String schemaName, String projectUuid, String sortPath) {
+        if ("_id".equals(sortPath)) {
+            return;
+        }
+        if (projectUuid == null || projectUuid.isEmpty()) {
+            throw new RuntimeException("projectId is required to page through '" + schemaName + "' by anything but id");
+        }
+        if ("createdAt".equals(sortPath)) {
+            return;
+        }
+        TableSchema tableSchema = getTableByNameAndProject(schemaName, projectUuid);
+        String column = sortPath.startsWith("data.") ? sortPath.substring("data.".length()) : sortPath;
+        if (tableSchema == null || !tableIndexService.indexedColumns(tableSchema).contains(column)) {
+            throw new RuntimeException("Cursor pagination can only sort by id, createdAt or an indexed column; '"
+                    + column + "' is not indexed");
+        }
+    }
+
+    private Object keysetValue(TableData tableData, String sortPath) {
+        Object value;
+        if ("_id".equals(sortPath)) {
+            return null;
+        } else if ("createdAt".equals(sortPath)) {
+            value = tableData.getCreatedAt();
+        } else {
+            value = tableData.getData() != null ? tableData.getData().get(sortPath.substring("data.".length())) : null;
+        }
+        // Store the value the way MongoDB compares it (LocalDateTime -> Date, ...)
+        return mongoTemplate.getConverter().convertToMongoType(value);
+    }
+
+    private Object keysetId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    // Version 0 also matches records written before versioning was introduced
+    private Criteria versionCriteria(long expectedVersion) {
+        if (expectedVersion == 0L) {
+            return new Criteria().orOperator(
+                    Criteria.where("version").is(0L),
+                    Criteria.where("version").exists(false));
+        }
+        return Criteria.where("version").is(expectedVersion);
+    }
+
+    // Trims the requested field names once, so projection and record mapping see the same names
+    private List<String> parseFields(List<String> fields) {
+        if (fields == null) {
+            return null;
+        }
+        return fields.stream()
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    // Restricts the returned document to the requested columns; id and version are always returned
+    private void applyProjection(Query query, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return;
+        }
+        query.fields().include("_id").include("version");
+        for (String field : fields) {
+            String path = resolveFieldPath(field);
+            if (!"_id".equals(path) && !"version".equals(path)) {
+                query.fields().include(path);
+            }
+        }
+    }
 }
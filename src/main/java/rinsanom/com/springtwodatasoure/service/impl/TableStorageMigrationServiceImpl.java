@@ -0,0 +1,425 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+import rinsanom.com.springtwodatasoure.repository.mongo.TableCollectionResolver;
+import rinsanom.com.springtwodatasoure.service.TableIndexService;
+import rinsanom.com.springtwodatasoure.service.TableStorageMigrationService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static rinsanom.com.springtwodatasoure.entity.TableSchema.StorageMigration.STATUS_CLEANING;
+import static rinsanom.com.springtwodatasoure.entity.TableSchema.StorageMigration.STATUS_COMPLETED;
+import static rinsanom.com.springtwodatasoure.entity.TableSchema.StorageMigration.STATUS_COPYING;
+import static rinsanom.com.springtwodatasoure.entity.TableSchema.StorageMigration.STATUS_FAILED;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TableStorageMigrationServiceImpl implements TableStorageMigrationService {
+
+    // Duplicate key on upsert: the target already holds a newer version of the record
+    private static final int DUPLICATE_KEY = 11000;
+    private static final String ID_INDEX = "index: _id_";
+
+    // Catch-up passes look back a little further than the pass start to absorb clock skew between app nodes;
+    // waits for other nodes to reload a table's route add the same margin
+    private static final long CATCH_UP_MARGIN_SECONDS = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final TableCollectionResolver tableCollectionResolver;
+    private final TableIndexService tableIndexService;
+
+    @Value("${app.tables.migration-batch-size:1000}")
+    private int migrationBatchSize;
+
+    @Value("${app.tables.migration-lease-seconds:120}")
+    private long migrationLeaseSeconds;
+
+    // Migrations whose runner stopped renewing its lease (crash, restart) would otherwise stay in progress forever:
+    // a copy is marked FAILED, the shared collection still being authoritative; a cleanup is resumed
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverStaleMigrations() {
+        try {
+            LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(migrationLeaseSeconds);
+            Query stale = new Query(Criteria.where("storageMigration.status").in(STATUS_COPYING, STATUS_CLEANING)
+                    .orOperator(
+                            Criteria.where("storageMigration.heartbeatAt").lt(staleBefore),
+                            Criteria.where("storageMigration.heartbeatAt").exists(false)
+                                    .and("storageMigration.startedAt").lt(staleBefore)));
+            for (TableSchema tableSchema : mongoTemplate.find(stale, TableSchema.class)) {
+                recover(tableSchema);
+            }
+        } catch (Exception e) {
+            // MongoDB is optional at startup (see management.health.mongo)
+            log.warn("Could not recover interrupted table migrations: {}", e.getMessage());
+        }
+    }
+
+    private void recover(TableSchema tableSchema) {
+        TableSchema.StorageMigration migration = tableSchema.getStorageMigration();
+        String staleOwner = migration.getOwner();
+        // Take the lease over from the stale owner, so that two recovering instances do not both act on it
+        migration.setOwner(UUID.randomUUID().toString());
+        migration.setHeartbeatAt(LocalDateTime.now());
+        Query claim = new Query(Criteria.where("_id").is(tableSchema.getId())
+                .and("storageMigration.status").is(migration.getStatus())
+                .and("storageMigration.owner").is(staleOwner));
+
+        if (STATUS_COPYING.equals(migration.getStatus())) {
+            migration.setStatus(STATUS_FAILED);
+            migration.setError("Interrupted: the migration stopped renewing its lease");
+            migration.setFinishedAt(LocalDateTime.now());
+            if (mongoTemplate.updateFirst(claim, Update.update("storageMigration", migration), TableSchema.class)
+                    .getModifiedCount() > 0) {
+                tableCollectionResolver.evict(tableSchema.getSchemaName(), tableSchema.getProjectId());
+                log.warn("Marked interrupted migration of table '{}' in project '{}' as failed",
+                        tableSchema.getSchemaName(), tableSchema.getProjectId());
+            }
+            return;
+        }
+
+        if (mongoTemplate.updateFirst(claim, Update.update("storageMigration", migration), TableSchema.class)
+                .getModifiedCount() > 0) {
+            log.info("Resuming clean-up of migrated table '{}' in project '{}'",
+                    tableSchema.getSchemaName(), tableSchema.getProjectId());
+            // Writes that reached the source since the copy started may not be in the target yet
+            LocalDateTime since = migration.getStartedAt();
+            Thread.ofVirtual()
+                    .name("table-migration-" + tableSchema.getProjectId() + "-" + tableSchema.getSchemaName())
+                    .start(() -> cleanUp(tableSchema, migration, since, LocalDateTime.now()));
+        }
+    }
+
+    @Override
+    public String startMigration(TableSchema tableSchema) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String source = tableCollectionResolver.collectionFor(tableSchema);
+        String target = tableCollectionResolver.dedicatedCollectionName(schemaName, projectId);
+
+        if (!TableCollectionResolver.SHARED_COLLECTION.equals(source)) {
+            throw new RuntimeException("Table '" + schemaName + "' already uses collection '" + source + "'");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        TableSchema.StorageMigration migration = new TableSchema.StorageMigration();
+        migration.setTargetCollection(target);
+        migration.setStatus(STATUS_COPYING);
+        migration.setOwner(UUID.randomUUID().toString());
+        migration.setStartedAt(now);
+        migration.setHeartbeatAt(now);
+
+        // Claim the table atomically so that two requests cannot start the same migration; a copy whose lease
+        // ran out can be started over
+        Query unclaimed = new Query(Criteria.where("_id").is(tableSchema.getId())
+                .and("storageCollection").is(null)
+                .orOperator(
+                        Criteria.where("storageMigration.status").ne(STATUS_COPYING),
+                        Criteria.where("storageMigration.heartbeatAt").lt(now.minusSeconds(migrationLeaseSeconds))));
+        if (mongoTemplate.updateFirst(unclaimed, Update.update("storageMigration", migration), TableSchema.class)
+                .getModifiedCount() == 0) {
+            throw new RuntimeException("Table '" + schemaName + "' is already being migrated");
+        }
+        // From here on deletes are mirrored to the target collection (see TableServiceImpl#removeRecords); other
+        // nodes follow once their cached route expires
+        tableCollectionResolver.evict(schemaName, projectId);
+
+        Thread.ofVirtual()
+                .name("table-migration-" + projectId + "-" + schemaName)
+                .start(() -> migrate(tableSchema, migration));
+
+        log.info("Started migration of table '{}' in project '{}' to collection '{}'", schemaName, projectId, target);
+        return target;
+    }
+
+    private void migrate(TableSchema tableSchema, TableSchema.StorageMigration migration) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String source = TableCollectionResolver.SHARED_COLLECTION;
+        String target = migration.getTargetCollection();
+
+        LocalDateTime catchUpStartedAt;
+        LocalDateTime switchedAt;
+        try {
+            // Build the indexes up front so they are not created over a full collection
+            TableSchema targetSchema = copyOf(tableSchema, target);
+            tableIndexService.syncTableIndexes(targetSchema);
+
+            copyRecords(tableSchema, migration, source, target, null);
+
+            // Nodes that cached the route before the migration started do not mirror deletes to the target; once
+            // every node has reloaded it, deletes the copy missed are found by comparing it with the source
+            awaitRouteReload(tableSchema, migration, migration.getStartedAt());
+
+            // Writes that landed in the shared collection while the bulk copy was running
+            LocalDateTime catchUpFrom = migration.getStartedAt().minusSeconds(CATCH_UP_MARGIN_SECONDS);
+            catchUpStartedAt = LocalDateTime.now();
+            copyRecords(tableSchema, migration, source, target, catchUpFrom);
+
+            // After the last copy before the switch: a batch read before a delete may have been written after it
+            long removed = removeDeletedFromTarget(tableSchema, migration, source, target);
+            if (removed > 0) {
+                log.info("Removed {} records deleted during the copy of table '{}' from '{}'", removed, schemaName, target);
+            }
+
+            // Switch reads and writes over to the dedicated collection; deletes are now mirrored to the source
+            switchedAt = LocalDateTime.now();
+            migration.setStatus(STATUS_CLEANING);
+            saveMigration(tableSchema, migration, new Update().set("storageCollection", target));
+            tableCollectionResolver.evict(schemaName, projectId);
+
+        } catch (Exception e) {
+            log.error("Migration of table '{}' in project '{}' failed: {}", schemaName, projectId, e.getMessage());
+            migration.setStatus(STATUS_FAILED);
+            migration.setError(e.getMessage());
+            migration.setFinishedAt(LocalDateTime.now());
+            try {
+                // The shared collection is still authoritative, the partial copy is left for a retry to overwrite
+                saveMigration(tableSchema, migration, new Update());
+                tableCollectionResolver.evict(schemaName, projectId);
+            } catch (Exception statusError) {
+                log.error("Could not record failed migration of table '{}': {}", schemaName, statusError.getMessage());
+            }
+            return;
+        }
+
+        cleanUp(tableSchema, migration, catchUpStartedAt, switchedAt);
+    }
+
+    // Removes the table's records from the shared collection once nothing writes there any more
+    private void cleanUp(TableSchema tableSchema, TableSchema.StorageMigration migration, LocalDateTime catchUpFrom,
+                         LocalDateTime switchedAt) {
+        String schemaName = tableSchema.getSchemaName();
+        String projectId = tableSchema.getProjectId();
+        String source = TableCollectionResolver.SHARED_COLLECTION;
+        String target = migration.getTargetCollection();
+
+        try {
+            // Other nodes keep writing to the source with the route they cached before the switch
+            awaitRouteReload(tableSchema, migration, switchedAt);
+            copyRecords(tableSchema, migration, source, target, catchUpFrom.minusSeconds(CATCH_UP_MARGIN_SECONDS));
+
+            long kept = removeCopiedFromSource(tableSchema, migration, source, target);
+            tableIndexService.dropTableIndexes(copyOf(tableSchema, null));
+
+            migration.setStatus(STATUS_COMPLETED);
+            migration.setFinishedAt(LocalDateTime.now());
+            if (kept > 0) {
+                migration.setError(kept + " records were left in " + source + " because the target has no copy of them");
+                log.warn("{} records of table '{}' in project '{}' were left in {}: no copy in '{}'",
+                        kept, schemaName, projectId, source, target);
+            }
+            saveMigration(tableSchema, migration, new Update());
+            tableCollectionResolver.evict(schemaName, projectId);
+
+            log.info("Migrated {} records of table '{}' in project '{}' to collection '{}'",
+                    migration.getCopiedRecords(), schemaName, projectId, target);
+
+        } catch (Exception e) {
+            // Reads and writes already use the target; the job stays CLEANING and the next startup resumes it
+            log.error("Clean-up after migrating table '{}' in project '{}' failed: {}", schemaName, projectId, e.getMessage());
+            migration.setError(e.getMessage());
+            try {
+                saveMigration(tableSchema, migration, new Update());
+            } catch (Exception statusError) {
+                log.error("Could not record failed clean-up of table '{}': {}", schemaName, statusError.getMessage());
+            }
+        }
+    }
+
+    // Keyset walk over _id so every batch is an index range scan on project_schema_id; with `since`, only the records
+    // written from then on
+    private void copyRecords(TableSchema tableSchema, TableSchema.StorageMigration migration, String source, String target,
+                             LocalDateTime since) {
+        Object lastId = null;
+        while (true) {
+            Criteria criteria = tableCriteria(tableSchema);
+            if (since != null) {
+                criteria = criteria.and("updatedAt").gte(since);
+            }
+            if (lastId != null) {
+                criteria = criteria.and("_id").gt(lastId);
+            }
+            List<Document> batch = mongoTemplate.find(new Query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(migrationBatchSize), Document.class, source);
+            if (batch.isEmpty()) {
+                return;
+            }
+            migration.setCopiedRecords(migration.getCopiedRecords() + upsertBatch(target, batch));
+            lastId = batch.get(batch.size() - 1).get("_id");
+            heartbeat(tableSchema, migration);
+        }
+    }
+
+    // Deletes from the target the records that are no longer in the source
+    private long removeDeletedFromTarget(TableSchema tableSchema, TableSchema.StorageMigration migration,
+                                         String source, String target) {
+        long removed = 0;
+        Object lastId = null;
+        while (true) {
+            List<Document> batch = idBatch(tableSchema, target, lastId);
+            if (batch.isEmpty()) {
+                return removed;
+            }
+            List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+            Set<Object> inSource = new HashSet<>();
+            for (Document document : mongoTemplate.find(idsQuery(tableSchema, ids), Document.class, source)) {
+                inSource.add(document.get("_id"));
+            }
+            List<Object> deleted = ids.stream().filter(id -> !inSource.contains(id)).toList();
+            if (!deleted.isEmpty()) {
+                removed += mongoTemplate.remove(idsQuery(tableSchema, deleted), target).getDeletedCount();
+            }
+            lastId = ids.get(ids.size() - 1);
+            heartbeat(tableSchema, migration);
+        }
+    }
+
+    // Deletes from the source only the records the target holds in the same or a newer version; returns how many stay
+    private long removeCopiedFromSource(TableSchema tableSchema, TableSchema.StorageMigration migration,
+                                        String source, String target) {
+        long kept = 0;
+        Object lastId = null;
+        while (true) {
+            List<Document> batch = idBatch(tableSchema, source, lastId);
+            if (batch.isEmpty()) {
+                return kept;
+            }
+            List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+            Map<Object, Long> targetVersions = new HashMap<>();
+            for (Document document : mongoTemplate.find(idsQuery(tableSchema, ids), Document.class, target)) {
+                targetVersions.put(document.get("_id"), versionOf(document));
+            }
+            List<Object> copied = new ArrayList<>();
+            for (Document document : batch) {
+                Long targetVersion = targetVersions.get(document.get("_id"));
+                if (targetVersion != null && targetVersion >= versionOf(document)) {
+                    copied.add(document.get("_id"));
+                }
+            }
+            if (!copied.isEmpty()) {
+                mongoTemplate.remove(idsQuery(tableSchema, copied), source);
+            }
+            kept += batch.size() - copied.size();
+            lastId = ids.get(ids.size() - 1);
+            heartbeat(tableSchema, migration);
+        }
+    }
+
+    private List<Document> idBatch(TableSchema tableSchema, String collection, Object lastId) {
+        Criteria criteria = tableCriteria(tableSchema);
+        if (lastId != null) {
+            criteria = criteria.and("_id").gt(lastId);
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(migrationBatchSize);
+        query.fields().include("_id").include("version");
+        return mongoTemplate.find(query, Document.class, collection);
+    }
+
+    private Query idsQuery(TableSchema tableSchema, List<Object> ids) {
+        Query query = new Query(tableCriteria(tableSchema).and("_id").in(ids));
+        query.fields().include("_id").include("version");
+        return query;
+    }
+
+    // Replaces a record in the target only if the copy there is older, so a re-copy never undoes an update
+    private long upsertBatch(String target, List<Document> documents) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, target);
+        for (Document document : documents) {
+            Query olderCopy = new Query(Criteria.where("_id").is(document.get("_id"))
+                    .orOperator(Criteria.where("version").lt(versionOf(document)), Criteria.where("version").exists(false)));
+            bulk.replaceOne(olderCopy, document, FindAndReplaceOptions.options().upsert());
+        }
+        try {
+            bulk.execute();
+            return documents.size();
+        } catch (BulkOperationException e) {
+            // A clash on another unique index means the records cannot all be moved; fail before the switch
+            boolean onlyNewerCopies = e.getErrors().stream()
+                    .allMatch(error -> error.getCode() == DUPLICATE_KEY && error.getMessage().contains(ID_INDEX));
+            if (!onlyNewerCopies) {
+                throw e;
+            }
+            return documents.size() - e.getErrors().size();
+        }
+    }
+
+    // Sleeps until every node has reloaded the route it may have cached at `changedAt`, renewing the lease meanwhile
+    private void awaitRouteReload(TableSchema tableSchema, TableSchema.StorageMigration migration, LocalDateTime changedAt)
+            throws InterruptedException {
+        LocalDateTime reloadedAt = changedAt.plus(tableCollectionResolver.cacheTtl()).plusSeconds(CATCH_UP_MARGIN_SECONDS);
+        long renewEveryMillis = Math.max(1000, migrationLeaseSeconds * 1000 / 4);
+        while (LocalDateTime.now().isBefore(reloadedAt)) {
+            long remaining = Duration.between(LocalDateTime.now(), reloadedAt).toMillis();
+            Thread.sleep(Math.max(1, Math.min(remaining, renewEveryMillis)));
+            heartbeat(tableSchema, migration);
+        }
+    }
+
+    // Renews the lease and publishes progress; fails once another run has taken the migration over
+    private void heartbeat(TableSchema tableSchema, TableSchema.StorageMigration migration) {
+        migration.setHeartbeatAt(LocalDateTime.now());
+        if (mongoTemplate.updateFirst(ownedBy(tableSchema, migration),
+                new Update().set("storageMigration.heartbeatAt", migration.getHeartbeatAt())
+                        .set("storageMigration.copiedRecords", migration.getCopiedRecords()),
+                TableSchema.class).getModifiedCount() == 0) {
+            throw new IllegalStateException("Lost the migration lease of table '" + tableSchema.getSchemaName() + "'");
+        }
+    }
+
+    private void saveMigration(TableSchema tableSchema, TableSchema.StorageMigration migration, Update update) {
+        migration.setHeartbeatAt(LocalDateTime.now());
+        if (mongoTemplate.updateFirst(ownedBy(tableSchema, migration),
+                update.set("storageMigration", migration).set("updatedAt", LocalDateTime.now()),
+                TableSchema.class).getModifiedCount() == 0) {
+            throw new IllegalStateException("Lost the migration lease of table '" + tableSchema.getSchemaName() + "'");
+        }
+    }
+
+    private Query ownedBy(TableSchema tableSchema, TableSchema.StorageMigration migration) {
+        return new Query(Criteria.where("_id").is(tableSchema.getId()).and("storageMigration.owner").is(migration.getOwner()));
+    }
+
+    private long versionOf(Document document) {
+        return document.get("version") instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private TableSchema copyOf(TableSchema tableSchema, String storageCollection) {
+        TableSchema copy = new TableSchema(tableSchema.getSchemaName(), tableSchema.getProjectId(),
+                tableSchema.getSchema(), tableSchema.getRelationships());
+        copy.setId(tableSchema.getId());
+        copy.setNaturalKey(tableSchema.getNaturalKey());
+        copy.setTtl(tableSchema.getTtl());
+        copy.setTimeSeries(tableSchema.getTimeSeries());
+        copy.setStorageCollection(storageCollection);
+        return copy;
+    }
+
+    private Criteria tableCriteria(TableSchema tableSchema) {
+        return Criteria.where("projectId").is(tableSchema.getProjectId()).and("schemaName").is(tableSchema.getSchemaName());
+    }
+}
@@ -0,0 +1,505 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import rinsanom.com.springtwodatasoure.dto.WebhookRequestDTO;
+import rinsanom.com.springtwodatasoure.entity.TableSchema;
+import rinsanom.com.springtwodatasoure.entity.WebhookEvent;
+import rinsanom.com.springtwodatasoure.entity.WebhookSubscription;
+import rinsanom.com.springtwodatasoure.repository.mongo.WebhookSubscriptionRepository;
+import rinsanom.com.springtwodatasoure.service.WebhookService;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookServiceImpl implements WebhookService {
+
+    private static final String SIGNATURE_HEADER = "X-Webhook-Signature";
+    private static final String SUBSCRIPTION_HEADER = "X-Webhook-Id";
+
+    private final MongoTemplate mongoTemplate;
+    private final WebhookSubscriptionRepository webhookSubscriptionRepository;
+    private final ObjectMapper objectMapper;
+    private final RestTemplateBuilder restTemplateBuilder;
+
+    // Subscriptions per table, so writes to tables without webhooks do not query for them every time
+    private final Map<String, CachedSubscriptions> subscriptionCache = new ConcurrentHashMap<>();
+    // Deliveries in flight per receiving URL
+    private final Map<String, Semaphore> endpointPermits = new ConcurrentHashMap<>();
+    // Identifies this instance's claims on outbox events
+    private final String dispatcherId = UUID.randomUUID().toString();
+    private final SecureRandom random = new SecureRandom();
+
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService deliveries;
+    private RestTemplate restTemplate;
+
+    @Value("${app.webhooks.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.webhooks.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.webhooks.max-concurrency-per-endpoint:2}")
+    private int maxConcurrencyPerEndpoint;
+
+    @Value("${app.webhooks.delivery-threads:8}")
+    private int deliveryThreads;
+
+    @Value("${app.webhooks.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${app.webhooks.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.webhooks.retry-base-delay-ms:1000}")
+    private long retryBaseDelayMs;
+
+    @Value("${app.webhooks.retry-max-delay-ms:600000}")
+    private long retryMaxDelayMs;
+
+    @Value("${app.webhooks.retention-hours:72}")
+    private long retentionHours;
+
+    @Value("${app.webhooks.subscription-cache-ttl-seconds:30}")
+    private long subscriptionCacheTtlSeconds;
+
+    // Hosts that may resolve to private addresses, e.g. a receiver running next to the app in development
+    @Value("${app.webhooks.allowed-hosts:}")
+    private List<String> allowedHosts;
+
+    private record CachedSubscriptions(List<WebhookSubscription> subscriptions, long loadedAt) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(timeoutMs))
+                .setReadTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(WebhookEvent.class);
+            indexOps.ensureIndex(new Index()
+                    .on("status", Sort.Direction.ASC)
+                    .on("subscriptionId", Sort.Direction.ASC)
+                    .on("nextAttemptAt", Sort.Direction.ASC)
+                    .named("status_subscription_next_attempt"));
+            indexOps.ensureIndex(new Index()
+                    .on("completedAt", Sort.Direction.ASC)
+                    .expire(retentionHours, TimeUnit.HOURS)
+                    .named("completed_ttl"));
+            mongoTemplate.indexOps(WebhookSubscription.class).ensureIndex(new Index()
+                    .on("projectId", Sort.Direction.ASC)
+                    .on("schemaName", Sort.Direction.ASC)
+                    .named("project_schema"));
+        } catch (Exception e) {
+            // MongoDB is optional at startup (see management.health.mongo); the dispatcher keeps polling regardless
+            log.warn("Could not initialize webhook outbox indexes: {}", e.getMessage());
+        }
+
+        deliveries = Executors.newFixedThreadPool(deliveryThreads, daemon("webhook-delivery"));
+        dispatcher = Executors.newSingleThreadScheduledExecutor(daemon("webhook-dispatcher"));
+        dispatcher.scheduleWithFixedDelay(this::dispatch, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+        if (deliveries != null) {
+            // Claimed but undelivered events are picked up again once their lock expires
+            deliveries.shutdownNow();
+        }
+    }
+
+    @Override
+    public Map<String, Object> createSubscription(TableSchema tableSchema, WebhookRequestDTO request) {
+        URI uri;
+        try {
+            uri = URI.create(request.getUrl() != null ? request.getUrl().trim() : "");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid webhook url '" + request.getUrl() + "'");
+        }
+        if ((!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) || uri.getHost() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Webhook url must be an absolute http(s) URL");
+        }
+        try {
+            checkTarget(uri);
+        } catch (UnknownHostException e) {
+            // The receiver may not be in DNS yet; delivery checks again
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        List<String> events = request.getEvents() != null && !request.getEvents().isEmpty()
+                ? request.getEvents().stream().map(String::toLowerCase).distinct().toList()
+                : List.of(EVENT_INSERT, EVENT_UPDATE);
+        for (String event : events) {
+            if (!EVENT_INSERT.equals(event) && !EVENT_UPDATE.equals(event)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown event '" + event + "', expected insert or update");
+            }
+        }
+
+        WebhookSubscription subscription = new WebhookSubscription();
+        subscription.setProjectId(tableSchema.getProjectId());
+        subscription.setSchemaName(tableSchema.getSchemaName());
+        subscription.setUrl(uri.toString());
+        subscription.setEvents(events);
+        subscription.setSecret(request.getSecret() != null && !request.getSecret().isBlank() ? request.getSecret() : newSecret());
+        subscription = webhookSubscriptionRepository.save(subscription);
+        subscriptionCache.remove(cacheKey(tableSchema));
+
+        log.info("Webhook '{}' on table '{}' in project '{}' posts {} to {}", subscription.getId(),
+                tableSchema.getSchemaName(), tableSchema.getProjectId(), events, subscription.getUrl());
+        Map<String, Object> view = view(subscription);
+        view.put("secret", subscription.getSecret());
+        return view;
+    }
+
+    @Override
+    public List<Map<String, Object>> listSubscriptions(TableSchema tableSchema) {
+        return webhookSubscriptionRepository.findByProjectIdAndSchemaName(tableSchema.getProjectId(), tableSchema.getSchemaName())
+                .stream()
+                .map(this::view)
+                .toList();
+    }
+
+    @Override
+    public void deleteSubscription(TableSchema tableSchema, String subscriptionId) {
+        WebhookSubscription subscription = webhookSubscriptionRepository.findById(subscriptionId)
+                .filter(found -> tableSchema.getProjectId().equals(found.getProjectId())
+                        && tableSchema.getSchemaName().equals(found.getSchemaName()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No webhook " + subscriptionId + " on table " + tableSchema.getSchemaName()));
+        webhookSubscriptionRepository.delete(subscription);
+        subscriptionCache.remove(cacheKey(tableSchema));
+        // Pending events of the webhook are dropped by the dispatcher once it no longer finds the subscription
+    }
+
+    @Override
+    public void deleteSubscriptions(TableSchema tableSchema) {
+        webhookSubscriptionRepository.deleteByProjectIdAndSchemaName(tableSchema.getProjectId(), tableSchema.getSchemaName());
+        subscriptionCache.remove(cacheKey(tableSchema));
+    }
+
+    @Override
+    public void enqueue(MongoOperations operations, String projectId, String schemaName, String event, List<Map<String, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<WebhookSubscription> subscribed = subscriptionsOf(projectId, schemaName).stream()
+                .filter(subscription -> subscription.getEvents().contains(event))
+                .toList();
+        if (subscribed.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<WebhookEvent> outbox = new ArrayList<>(subscribed.size() * records.size());
+        for (WebhookSubscription subscription : subscribed) {
+            for (Map<String, Object> record : records) {
+                WebhookEvent webhookEvent = new WebhookEvent();
+                webhookEvent.setSubscriptionId(subscription.getId());
+                webhookEvent.setProjectId(projectId);
+                webhookEvent.setSchemaName(schemaName);
+                webhookEvent.setOp(event);
+                webhookEvent.setRecordId(record.get("id") != null ? record.get("id").toString() : null);
+                webhookEvent.setRecord(record);
+                webhookEvent.setOccurredAt(now);
+                webhookEvent.setStatus(WebhookEvent.STATUS_PENDING);
+                webhookEvent.setNextAttemptAt(now);
+                outbox.add(webhookEvent);
+            }
+        }
+        operations.insert(outbox, WebhookEvent.class);
+    }
+
+    @Override
+    public boolean hasSubscribers(String projectId, String schemaName, String event) {
+        return subscriptionsOf(projectId, schemaName).stream()
+                .anyMatch(subscription -> subscription.getEvents().contains(event));
+    }
+
+    // One dispatcher pass: for every webhook with due events, claim a batch per free delivery slot of its URL
+    private void dispatch() {
+        try {
+            Instant now = Instant.now();
+            List<String> due = mongoTemplate.findDistinct(new Query(dueCriteria(now)), "subscriptionId", WebhookEvent.class, String.class);
+            for (String subscriptionId : due) {
+                WebhookSubscription subscription = webhookSubscriptionRepository.findById(subscriptionId).orElse(null);
+                if (subscription == null) {
+                    discard(subscriptionId);
+                    continue;
+                }
+                Semaphore permits = endpointPermits.computeIfAbsent(subscription.getUrl(),
+                        url -> new Semaphore(maxConcurrencyPerEndpoint));
+                while (permits.tryAcquire()) {
+                    String claim = claim(subscriptionId, now);
+                    if (claim == null) {
+                        permits.release();
+                        break;
+                    }
+                    deliveries.execute(() -> {
+                        try {
+                            deliver(subscription, claim);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Webhook dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    private Criteria dueCriteria(Instant now) {
+        return new Criteria().andOperator(
+                Criteria.where("status").is(WebhookEvent.STATUS_PENDING).and("nextAttemptAt").lte(now),
+                new Criteria().orOperator(Criteria.where("lockedUntil").is(null), Criteria.where("lockedUntil").lt(now)));
+    }
+
+    // Locks the oldest due events of a webhook for this dispatcher and returns the claim, or null if there were none;
+    // the lock outlives a delivery attempt so that another instance only takes them over once this one is gone
+    private String claim(String subscriptionId, Instant now) {
+        Query candidates = new Query(new Criteria().andOperator(dueCriteria(now), Criteria.where("subscriptionId").is(subscriptionId)))
+                .with(Sort.by(Sort.Direction.ASC, "occurredAt", "_id"))
+                .limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, WebhookEvent.class).stream().map(WebhookEvent::getId).toList();
+        if (ids.isEmpty()) {
+            return null;
+        }
+
+        String claim = dispatcherId + ":" + UUID.randomUUID();
+        long claimed = mongoTemplate.updateMulti(new Query(new Criteria().andOperator(dueCriteria(now), Criteria.where("_id").in(ids))),
+                new Update().set("lockedBy", claim).set("lockedUntil", lockedUntil()),
+                WebhookEvent.class).getModifiedCount();
+        return claimed > 0 ? claim : null;
+    }
+
+    // Restarts the lock when the delivery actually begins, as the task may have queued for a free delivery thread;
+    // events another instance has taken over meanwhile are no longer this claim's
+    private List<WebhookEvent> renew(String claim) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("lockedBy").is(claim)),
+                new Update().set("lockedUntil", lockedUntil()), WebhookEvent.class);
+        return mongoTemplate.find(new Query(Criteria.where("lockedBy").is(claim))
+                .with(Sort.by(Sort.Direction.ASC, "occurredAt", "_id")), WebhookEvent.class);
+    }
+
+    private Instant lockedUntil() {
+        return Instant.now().plusMillis(timeoutMs * 4);
+    }
+
+    void deliver(WebhookSubscription subscription, String claim) {
+        List<WebhookEvent> batch = renew(claim);
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<String> ids = batch.stream().map(WebhookEvent::getId).toList();
+        String error;
+        try {
+            checkTarget(URI.create(subscription.getUrl()));
+
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("webhookId", subscription.getId());
+            payload.put("projectId", subscription.getProjectId());
+            payload.put("table", subscription.getSchemaName());
+            payload.put("events", batch.stream().map(event -> {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("eventId", event.getId());
+                body.put("op", event.getOp());
+                body.put("recordId", event.getRecordId());
+                body.put("occurredAt", event.getOccurredAt().toString());
+                body.put("attempt", event.getAttempts() + 1);
+                body.put("record", event.getRecord());
+                return body;
+            }).toList());
+            String json = objectMapper.writeValueAsString(payload);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set(SUBSCRIPTION_HEADER, subscription.getId());
+            headers.set(SIGNATURE_HEADER, "sha256=" + sign(subscription.getSecret(), json));
+            restTemplate.exchange(subscription.getUrl(), HttpMethod.POST, new HttpEntity<>(json, headers), Void.class);
+
+            mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(ids).and("lockedBy").is(claim)),
+                    new Update().set("status", WebhookEvent.STATUS_DELIVERED)
+                            .set("completedAt", Instant.now())
+                            .inc("attempts", 1)
+                            .unset("lockedBy").unset("lockedUntil").unset("lastError"),
+                    WebhookEvent.class);
+            log.debug("Delivered {} events to webhook '{}'", batch.size(), subscription.getId());
+            return;
+        } catch (RestClientException e) {
+            // Non-2xx answers, timeouts and connection failures
+            error = e.getMessage();
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        retryLater(subscription, claim, batch, error);
+    }
+
+    // Exponential backoff with jitter per event; events that used up their attempts are given up
+    private void retryLater(WebhookSubscription subscription, String claim, List<WebhookEvent> batch, String error) {
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WebhookEvent.class);
+        int failed = 0;
+        for (WebhookEvent event : batch) {
+            int attempts = event.getAttempts() + 1;
+            Update update = new Update()
+                    .set("attempts", attempts)
+                    .set("lastError", error)
+                    .unset("lockedBy").unset("lockedUntil");
+            if (attempts >= maxAttempts) {
+                update.set("status", WebhookEvent.STATUS_FAILED).set("completedAt", now);
+                failed++;
+            } else {
+                long delay = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(attempts - 1, 30));
+                delay += ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+                update.set("nextAttemptAt", now.plusMillis(delay));
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(event.getId()).and("lockedBy").is(claim)), update);
+        }
+        bulk.execute();
+        log.warn("Delivery of {} events to webhook '{}' failed ({} given up): {}", batch.size(), subscription.getId(), failed, error);
+    }
+
+    // Events of a deleted webhook have nowhere to go
+    private void discard(String subscriptionId) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("subscriptionId").is(subscriptionId)
+                        .and("status").is(WebhookEvent.STATUS_PENDING)),
+                new Update().set("status", WebhookEvent.STATUS_FAILED)
+                        .set("lastError", "Webhook was deleted")
+                        .set("completedAt", Instant.now()),
+                WebhookEvent.class);
+    }
+
+    private List<WebhookSubscription> subscriptionsOf(String projectId, String schemaName) {
+        String key = projectId + "|" + schemaName;
+        CachedSubscriptions cached = subscriptionCache.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < subscriptionCacheTtlSeconds * 1000) {
+            return cached.subscriptions();
+        }
+        List<WebhookSubscription> subscriptions = webhookSubscriptionRepository.findByProjectIdAndSchemaName(projectId, schemaName);
+        subscriptionCache.put(key, new CachedSubscriptions(subscriptions, System.currentTimeMillis()));
+        return subscriptions;
+    }
+
+    // Receivers are user-supplied: refuse hosts that resolve into this network (loopback, private ranges, link-local
+    // including the cloud metadata endpoint 169.254.169.254) unless they are allow-listed. Checked again on every
+    // delivery as DNS answers change.
+    void checkTarget(URI uri) throws UnknownHostException {
+        String host = uri.getHost();
+        if (host == null) {
+            throw new IllegalStateException("Webhook url has no host");
+        }
+        if (allowedHosts != null && allowedHosts.stream().anyMatch(allowed -> allowed.trim().equalsIgnoreCase(host))) {
+            return;
+        }
+        for (InetAddress address : InetAddress.getAllByName(host)) {
+            if (isInternal(address)) {
+                throw new IllegalStateException("Webhook host '" + host + "' resolves to the internal address "
+                        + address.getHostAddress());
+            }
+        }
+    }
+
+    static boolean isInternal(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            // 0.0.0.0/8 and the carrier-grade NAT range 100.64.0.0/10
+            return bytes[0] == 0 || (bytes[0] == 100 && (bytes[1] & 0xc0) == 64);
+        }
+        // Unique local IPv6 addresses fc00::/7
+        return (bytes[0] & 0xfe) == 0xfc;
+    }
+
+    private String cacheKey(TableSchema tableSchema) {
+        return tableSchema.getProjectId() + "|" + tableSchema.getSchemaName();
+    }
+
+    private Map<String, Object> view(WebhookSubscription subscription) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", subscription.getId());
+        view.put("table", subscription.getSchemaName());
+        view.put("projectId", subscription.getProjectId());
+        view.put("url", subscription.getUrl());
+        view.put("events", subscription.getEvents());
+        view.put("createdAt", subscription.getCreatedAt());
+        return view;
+    }
+
+    private String newSecret() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    static String sign(String secret, String body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
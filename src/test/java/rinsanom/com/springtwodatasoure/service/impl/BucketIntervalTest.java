@@ -0,0 +1,27 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BucketIntervalTest {
+
+    @Test
+    void mapsOntoDateTruncUnits() {
+        assertThat(BucketInterval.parse("30s")).isEqualTo(new BucketInterval(30, "second", 30_000));
+        assertThat(BucketInterval.parse(" 5m ")).isEqualTo(new BucketInterval(5, "minute", 300_000));
+        assertThat(BucketInterval.parse("1w").unit()).isEqualTo("week");
+        assertThat(BucketInterval.parse("1M").unit()).isEqualTo("month");
+        assertThat(BucketInterval.parse("1m").unit()).isEqualTo("minute");
+        assertThat(BucketInterval.parse("2y").millis()).isEqualTo(2 * 31_536_000_000L);
+    }
+
+    @Test
+    void rejectsMalformedIntervals() {
+        for (String text : new String[]{null, "", "0h", "h", "1.5h", "1 h", "1x", "1234567d"}) {
+            assertThatThrownBy(() -> BucketInterval.parse(text))
+                    .hasMessageContaining("Invalid interval");
+        }
+    }
+}
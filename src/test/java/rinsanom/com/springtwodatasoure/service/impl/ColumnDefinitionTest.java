@@ -0,0 +1,65 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnDefinitionTest {
+
+    @Test
+    void parsesTypeAndModifiers() {
+        ColumnDefinition email = ColumnDefinition.parse("email", " varchar(255)  unique ");
+        assertThat(email.baseType()).isEqualTo("VARCHAR");
+        assertThat(email.kind()).isEqualTo(ColumnDefinition.Kind.STRING);
+        assertThat(email.unique()).isTrue();
+        assertThat(email.indexed()).isFalse();
+
+        assertThat(ColumnDefinition.parse("id", "INT PRIMARY KEY").unique()).isTrue();
+        assertThat(ColumnDefinition.parse("qty", "BIGINT INDEX").kind()).isEqualTo(ColumnDefinition.Kind.INTEGER);
+        assertThat(ColumnDefinition.parse("qty", "BIGINT INDEX").indexed()).isTrue();
+        assertThat(ColumnDefinition.parse("at", "TIMESTAMP").kind()).isEqualTo(ColumnDefinition.Kind.DATE);
+        assertThat(ColumnDefinition.parse("where", "POINT").isGeo()).isTrue();
+    }
+
+    @Test
+    void onlyTextColumnsAreSearchable() {
+        assertThat(ColumnDefinition.parse("body", "TEXT SEARCHABLE").searchable()).isTrue();
+        assertThat(ColumnDefinition.parse("tags", "TEXT[] FULLTEXT").searchable()).isTrue();
+        assertThat(ColumnDefinition.parse("qty", "INT SEARCHABLE").searchable()).isFalse();
+    }
+
+    @Test
+    void parsesTypedArrays() {
+        ColumnDefinition scores = ColumnDefinition.parse("scores", "INT[]");
+
+        assertThat(scores.kind()).isEqualTo(ColumnDefinition.Kind.ARRAY);
+        assertThat(scores.elementKind()).isEqualTo(ColumnDefinition.Kind.INTEGER);
+        assertThat(scores.accepts(List.of(1, 2L))).isTrue();
+        assertThat(scores.accepts(List.of(1, "2"))).isFalse();
+        assertThat(scores.acceptsElement(3)).isTrue();
+    }
+
+    @Test
+    void acceptsValuesOfTheDeclaredKind() {
+        assertThat(ColumnDefinition.parse("n", "INT").accepts(1.5)).isFalse();
+        assertThat(ColumnDefinition.parse("n", "DOUBLE").accepts(1)).isTrue();
+        assertThat(ColumnDefinition.parse("d", "DATE").accepts("2024-02-30")).isFalse();
+        assertThat(ColumnDefinition.parse("d", "DATETIME").accepts("2024-02-03T10:15:30Z")).isTrue();
+        assertThat(ColumnDefinition.parse("p", "POINT").accepts(Map.of("type", "Point", "coordinates", List.of(104.9, 11.5)))).isTrue();
+        assertThat(ColumnDefinition.parse("p", "POINT").accepts(Map.of("type", "Point", "coordinates", List.of(200, 11.5)))).isFalse();
+        assertThat(ColumnDefinition.parse("s", "TEXT").accepts(null)).isTrue();
+    }
+
+    @Test
+    void keepsTheSchemaOrder() {
+        Map<String, String> schema = new LinkedHashMap<>();
+        schema.put("b", "TEXT");
+        schema.put("a", "INT");
+
+        assertThat(ColumnDefinition.parseSchema(schema).keySet()).containsExactly("b", "a");
+    }
+}
@@ -0,0 +1,59 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    private final String sort = KeysetCursor.sortKey("updatedAt", Sort.Direction.DESC);
+
+    @Test
+    void roundTripsBsonTypes() {
+        ObjectId id = new ObjectId();
+        Date updatedAt = new Date(1_700_000_000_000L);
+
+        String token = new KeysetCursor(sort, updatedAt, id).encode();
+        KeysetCursor cursor = KeysetCursor.decode(token, sort);
+
+        assertThat(token).doesNotContain("+", "/", "=");
+        assertThat(cursor.value()).isEqualTo(updatedAt);
+        assertThat(cursor.id()).isEqualTo(id);
+    }
+
+    @Test
+    void keepsLongsAndNulls() {
+        KeysetCursor cursor = KeysetCursor.decode(new KeysetCursor(sort, 9_007_199_254_740_993L, "a").encode(), sort);
+        assertThat(cursor.value()).isEqualTo(9_007_199_254_740_993L);
+
+        assertThat(KeysetCursor.decode(new KeysetCursor(sort, null, "a").encode(), sort).value()).isNull();
+    }
+
+    @Test
+    void rejectsForeignAndMalformedTokens() {
+        String token = new KeysetCursor(sort, 1, "a").encode();
+
+        assertThatThrownBy(() -> KeysetCursor.decode(token, KeysetCursor.sortKey("updatedAt", Sort.Direction.ASC)))
+                .hasMessageContaining("different sort");
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor", sort))
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void continuesAfterTheLastRecord() {
+        ObjectId id = new ObjectId();
+
+        assertThat(new KeysetCursor(KeysetCursor.sortKey("_id", Sort.Direction.ASC), id, id)
+                .after("_id", Sort.Direction.ASC).getCriteriaObject())
+                .isEqualTo(new Document("_id", new Document("$gt", id)));
+        assertThat(new KeysetCursor(sort, 5, id).after("data.qty", Sort.Direction.ASC).getCriteriaObject()
+                .getList("$or", Document.class).get(0))
+                .isEqualTo(new Document("data.qty", new Document("$gt", 5)));
+    }
+}
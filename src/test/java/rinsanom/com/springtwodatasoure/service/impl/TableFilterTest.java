@@ -0,0 +1,74 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TableFilterTest {
+
+    private final Map<String, ColumnDefinition> columns = ColumnDefinition.parseSchema(Map.of(
+            "name", "VARCHAR(255)",
+            "price", "DOUBLE",
+            "qty", "INT",
+            "active", "BOOLEAN",
+            "location", "POINT"));
+
+    @Test
+    void convertsValuesToTheColumnType() {
+        Document query = TableFilter.compile("and(gte(price, 10), eq(qty, 3), eq(active, true))", columns).getCriteriaObject();
+
+        assertThat(query.getList("$and", Document.class)).containsExactly(
+                new Document("data.price", new Document("$gte", 10.0)),
+                new Document("data.qty", 3L),
+                new Document("data.active", true));
+    }
+
+    @Test
+    void parsesQuotedStringsAndNull() {
+        assertThat(TableFilter.compile("eq(name, 'O''Brien, Jr.')", columns).getCriteriaObject())
+                .isEqualTo(new Document("data.name", "O'Brien, Jr."));
+        assertThat(TableFilter.compile("eq(name, null)", columns).getCriteriaObject())
+                .isEqualTo(new Document("data.name", null));
+        assertThat(TableFilter.compile("eq(name, 'null')", columns).getCriteriaObject())
+                .isEqualTo(new Document("data.name", "null"));
+    }
+
+    @Test
+    void combinesInAndOr() {
+        Document query = TableFilter.compile("or(in(qty, 1, 2), exists(name, false))", columns).getCriteriaObject();
+
+        assertThat(query.getList("$or", Document.class)).containsExactly(
+                new Document("data.qty", new Document("$in", List.of(1L, 2L))),
+                new Document("data.name", new Document("$exists", false)));
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        assertThatThrownBy(() -> TableFilter.compile("eq(color, 'red')", columns))
+                .hasMessageContaining("Unknown column 'color'");
+        assertThatThrownBy(() -> TableFilter.compile("gte(qty, many)", columns))
+                .hasMessageContaining("'many' is not a valid INT value");
+        assertThatThrownBy(() -> TableFilter.compile("eq(name, 'open", columns))
+                .hasMessageContaining("Unterminated string");
+        assertThatThrownBy(() -> TableFilter.compile("eq(qty, 1) x", columns))
+                .hasMessageContaining("Unexpected 'x'");
+        assertThatThrownBy(() -> TableFilter.compile("eq(location, 1)", columns))
+                .hasMessageContaining("use near() or within()");
+        assertThatThrownBy(() -> TableFilter.compile(" ", columns))
+                .hasMessage("Filter must not be empty");
+    }
+
+    @Test
+    void limitsTheNumberOfConditions() {
+        String expression = "or(" + String.join(", ", Collections.nCopies(51, "eq(qty, 1)")) + ")";
+
+        assertThatThrownBy(() -> TableFilter.compile(expression, columns))
+                .hasMessageContaining("more than 50 conditions");
+    }
+}
@@ -0,0 +1,203 @@
+package rinsanom.com.springtwodatasoure.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import com.sun.net.httpserver.HttpServer;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import rinsanom.com.springtwodatasoure.entity.WebhookEvent;
+import rinsanom.com.springtwodatasoure.entity.WebhookSubscription;
+import rinsanom.com.springtwodatasoure.repository.mongo.WebhookSubscriptionRepository;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookServiceImplTest {
+
+    private static final String CLAIM = "dispatcher:claim";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private final AtomicReference<String> receivedSignature = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private HttpServer receiver;
+    private int status = 200;
+    private WebhookServiceImpl service;
+    private WebhookSubscription subscription;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        receiver = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        receiver.createContext("/hook", exchange -> {
+            requests.incrementAndGet();
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            receivedSignature.set(exchange.getRequestHeaders().getFirst("X-Webhook-Signature"));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        receiver.start();
+
+        service = new WebhookServiceImpl(mongoTemplate, mock(WebhookSubscriptionRepository.class), new ObjectMapper(),
+                new RestTemplateBuilder());
+        ReflectionTestUtils.setField(service, "restTemplate", new RestTemplate());
+        ReflectionTestUtils.setField(service, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBaseDelayMs", 1000L);
+        ReflectionTestUtils.setField(service, "retryMaxDelayMs", 600000L);
+        ReflectionTestUtils.setField(service, "allowedHosts", List.of(" 127.0.0.1 "));
+
+        subscription = new WebhookSubscription();
+        subscription.setId("webhook-1");
+        subscription.setProjectId("project-1");
+        subscription.setSchemaName("orders");
+        subscription.setSecret("s3cret");
+        subscription.setUrl("http://127.0.0.1:" + receiver.getAddress().getPort() + "/hook");
+
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(WebhookEvent.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WebhookEvent.class)).thenReturn(bulk);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.stop(0);
+    }
+
+    @Test
+    void signsTheBodyAndMarksTheEventsDelivered() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class))).thenReturn(List.of(event(0)));
+
+        service.deliver(subscription, CLAIM);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec("s3cret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String expected = HexFormat.of().formatHex(mac.doFinal(receivedBody.get().getBytes(StandardCharsets.UTF_8)));
+        assertThat(receivedSignature.get()).isEqualTo("sha256=" + expected);
+        assertThat(receivedBody.get()).contains("\"eventId\":\"event-1\"", "\"attempt\":1");
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).updateMulti(queries.capture(), updates.capture(), eq(WebhookEvent.class));
+        // The lock is renewed first, then only events still held by this claim are completed
+        assertThat(queries.getAllValues().get(1).getQueryObject().get("lockedBy")).isEqualTo(CLAIM);
+        assertThat(setOf(updates.getAllValues().get(1)).get("status")).isEqualTo(WebhookEvent.STATUS_DELIVERED);
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(WebhookEvent.class));
+    }
+
+    @Test
+    void schedulesARetryWhenTheReceiverFails() {
+        status = 503;
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class))).thenReturn(List.of(event(0)));
+
+        service.deliver(subscription, CLAIM);
+
+        Document set = setOf(retryUpdate());
+        assertThat(requests.get()).isEqualTo(1);
+        assertThat(set.get("attempts")).isEqualTo(1);
+        assertThat(set.getString("lastError")).contains("503");
+        assertThat((Instant) set.get("nextAttemptAt")).isAfter(Instant.now().plusMillis(500));
+        assertThat(set).doesNotContainKey("status");
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        status = 500;
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class))).thenReturn(List.of(event(2)));
+
+        service.deliver(subscription, CLAIM);
+
+        assertThat(setOf(retryUpdate()).get("status")).isEqualTo(WebhookEvent.STATUS_FAILED);
+    }
+
+    @Test
+    void skipsEventsTakenOverByAnotherInstance() {
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class))).thenReturn(List.of());
+
+        service.deliver(subscription, CLAIM);
+
+        assertThat(requests.get()).isZero();
+    }
+
+    @Test
+    void refusesInternalHostsUnlessAllowed() {
+        ReflectionTestUtils.setField(service, "allowedHosts", List.of());
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class))).thenReturn(List.of(event(0)));
+
+        service.deliver(subscription, CLAIM);
+
+        assertThat(requests.get()).isZero();
+        assertThat(setOf(retryUpdate()).getString("lastError")).contains("internal address 127.0.0.1");
+        assertThatThrownBy(() -> service.checkTarget(URI.create("http://169.254.169.254/latest/meta-data")))
+                .hasMessageContaining("169.254.169.254");
+    }
+
+    @Test
+    void recognisesInternalAddresses() throws Exception {
+        for (String address : List.of("127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+                "0.0.0.0", "100.64.0.1", "::1", "fe80::1", "fd00::1", "224.0.0.1")) {
+            assertThat(WebhookServiceImpl.isInternal(InetAddress.getByName(address))).as(address).isTrue();
+        }
+        for (String address : List.of("8.8.8.8", "100.128.0.1", "2606:4700::1111")) {
+            assertThat(WebhookServiceImpl.isInternal(InetAddress.getByName(address))).as(address).isFalse();
+        }
+    }
+
+    private WebhookEvent event(int attempts) {
+        WebhookEvent event = new WebhookEvent();
+        event.setId("event-1");
+        event.setSubscriptionId(subscription.getId());
+        event.setOp("insert");
+        event.setRecordId("record-1");
+        event.setRecord(Map.of("id", "record-1", "total", 12));
+        event.setOccurredAt(Instant.now());
+        event.setAttempts(attempts);
+        event.setLockedBy(CLAIM);
+        return event;
+    }
+
+    private UpdateDefinition retryUpdate() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(query.capture(), update.capture());
+        verify(bulk).execute();
+        assertThat(query.getValue().getQueryObject().get("lockedBy")).isEqualTo(CLAIM);
+        return update.getValue();
+    }
+
+    private Document setOf(UpdateDefinition update) {
+        return update.getUpdateObject().get("$set", Document.class);
+    }
+}